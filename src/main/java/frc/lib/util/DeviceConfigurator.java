@@ -0,0 +1,149 @@
+package frc.lib.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.ctre.phoenix.ErrorCode;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * Runs CTRE device configuration steps concurrently. Every config call is a blocking CAN
+ * round trip, so configuring devices one after another adds up; running one step per
+ * device at the same time overlaps the waits. Steps that return an error are retried,
+ * the whole batch is bounded by a timeout, and how long each device took is reported.
+ */
+public class DeviceConfigurator {
+    /** Blocking timeout for individual config calls, in milliseconds */
+    public static final int CONFIG_TIMEOUT_MS = 100;
+    private static final int MAX_ATTEMPTS = 3;
+
+    /**
+     * One device's configuration. Returns the first error it hit, or OK.
+     */
+    @FunctionalInterface
+    public interface ConfigStep {
+        ErrorCode apply();
+    }
+
+    private final double m_timeoutSeconds;
+    private final List<String> m_names = new ArrayList<>();
+    private final List<ConfigStep> m_steps = new ArrayList<>();
+
+    /**
+     * @param timeoutSeconds Longest a batch of steps may take before the remaining ones are abandoned
+     */
+    public DeviceConfigurator(double timeoutSeconds) {
+        m_timeoutSeconds = timeoutSeconds;
+    }
+
+    public void add(String name, ConfigStep step) {
+        m_names.add(name);
+        m_steps.add(step);
+    }
+
+    /**
+     * Runs every added step at once, retrying failed ones, then clears the steps so the
+     * configurator can run another batch.
+     * @return True if every step eventually returned OK in time
+     */
+    public boolean run() {
+        int count = m_steps.size();
+        if (count == 0) {
+            return true;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(count, runnable -> {
+            Thread thread = new Thread(runnable, "DeviceConfigurator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        List<Future<Result>> futures = new ArrayList<>(count);
+        for (ConfigStep step : m_steps) {
+            futures.add(executor.submit(() -> attempt(step)));
+        }
+
+        boolean allOk = true;
+        long deadline = System.nanoTime() + (long) (m_timeoutSeconds * 1e9);
+        for (int i = 0; i < count; i++) {
+            String name = m_names.get(i);
+            Result result;
+            try {
+                long remaining = Math.max(0L, deadline - System.nanoTime());
+                result = futures.get(i).get(remaining, TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                futures.get(i).cancel(true);
+                result = null;
+            } catch (InterruptedException | ExecutionException e) {
+                result = null;
+            }
+
+            if (result == null) {
+                allOk = false;
+                DriverStation.reportError(name + " did not finish configuring in time", false);
+                continue;
+            }
+
+            allOk &= result.error == ErrorCode.OK;
+            SmartDashboard.putNumber("Startup/" + name + " ms", result.elapsedMs);
+            String line = String.format("%s configured in %.1f ms (%d attempt%s, %s)",
+                name, result.elapsedMs, result.attempts, result.attempts == 1 ? "" : "s", result.error);
+            if (result.error == ErrorCode.OK) {
+                System.out.println(line);
+            } else {
+                DriverStation.reportError(line, false);
+            }
+        }
+
+        executor.shutdownNow();
+        m_names.clear();
+        m_steps.clear();
+        return allOk;
+    }
+
+    private static Result attempt(ConfigStep step) {
+        long start = System.nanoTime();
+        ErrorCode error = ErrorCode.GENERAL_ERROR;
+        int attempts = 0;
+        while (attempts < MAX_ATTEMPTS && !Thread.currentThread().isInterrupted()) {
+            attempts++;
+            error = step.apply();
+            if (error == ErrorCode.OK) {
+                break;
+            }
+        }
+        return new Result(error, attempts, (System.nanoTime() - start) * 1e-6);
+    }
+
+    /**
+     * @return The first error of the given codes, or OK if there is none
+     */
+    public static ErrorCode firstError(ErrorCode... errors) {
+        for (ErrorCode error : errors) {
+            if (error != ErrorCode.OK) {
+                return error;
+            }
+        }
+        return ErrorCode.OK;
+    }
+
+    private static class Result {
+        final ErrorCode error;
+        final int attempts;
+        final double elapsedMs;
+
+        Result(ErrorCode error, int attempts, double elapsedMs) {
+            this.error = error;
+            this.attempts = attempts;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+}
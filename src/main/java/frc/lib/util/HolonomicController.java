@@ -0,0 +1,178 @@
+package frc.lib.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Drives a swerve robot onto a moving or fixed reference pose. The reference's velocity
+ * is fed forward, and separate PID loops on field x, y and heading correct whatever error
+ * is left, so a good reference is tracked with almost no feedback and feedback only has to
+ * handle disturbances.
+ *
+ * Heading error is taken the short way around, so a reference at 179 degrees and a robot
+ * at -179 degrees are 2 degrees apart. Each integrator is clamped, and stops integrating
+ * while the output is saturated in the direction the error pushes, so it cannot wind up
+ * while the robot is still far away and overshoot once it arrives.
+ */
+public class HolonomicController {
+    private final Axis m_x;
+    private final Axis m_y;
+    private final Axis m_theta;
+    private final double m_maxVelocity;
+    private final double m_maxAngularVelocity;
+    private final double m_positionTolerance;
+    private final double m_headingTolerance;
+
+    // NaN until the first calculate(), so a fresh controller is not at its reference
+    private double m_errorX = Double.NaN;
+    private double m_errorY = Double.NaN;
+    private double m_errorTheta = Double.NaN;
+
+    /**
+     * @param x Feedback on the field x error, in meters per second per meter
+     * @param y Feedback on the field y error
+     * @param theta Feedback on the heading error, in radians per second per radian
+     * @param maxVelocity Fastest the robot may translate, in meters per second
+     * @param maxAngularVelocity Fastest the robot may turn, in radians per second
+     * @param positionTolerance How close counts as at the reference, in meters
+     * @param headingTolerance How close counts as at the reference heading, in radians
+     */
+    public HolonomicController(Gains x, Gains y, Gains theta, double maxVelocity, double maxAngularVelocity,
+            double positionTolerance, double headingTolerance) {
+        m_x = new Axis(x);
+        m_y = new Axis(y);
+        m_theta = new Axis(theta);
+        m_maxVelocity = maxVelocity;
+        m_maxAngularVelocity = maxAngularVelocity;
+        m_positionTolerance = positionTolerance;
+        m_headingTolerance = headingTolerance;
+    }
+
+    /**
+     * PID gains for one axis. The integrator limit caps the integral term's output.
+     */
+    public static final class Gains {
+        public final double kP;
+        public final double kI;
+        public final double kD;
+        public final double integratorLimit;
+
+        public Gains(double kP, double kI, double kD, double integratorLimit) {
+            this.kP = kP;
+            this.kI = kI;
+            this.kD = kD;
+            this.integratorLimit = integratorLimit;
+        }
+    }
+
+    /**
+     * Clears the integrators and derivative history, e.g. when starting towards a new reference.
+     */
+    public void reset() {
+        m_errorX = Double.NaN;
+        m_errorY = Double.NaN;
+        m_errorTheta = Double.NaN;
+        m_x.reset();
+        m_y.reset();
+        m_theta.reset();
+    }
+
+    /**
+     * @param pose The robot's field relative pose
+     * @param reference The pose the robot should be at
+     * @param referenceVelocityX Field relative x velocity of the reference, in meters per second
+     * @param referenceVelocityY Field relative y velocity of the reference
+     * @param referenceOmega Angular velocity of the reference, in radians per second
+     * @param dtSeconds Time since the last call
+     * @return Robot relative speeds to drive at
+     */
+    public ChassisSpeeds calculate(Pose2d pose, Pose2d reference, double referenceVelocityX, double referenceVelocityY,
+            double referenceOmega, double dtSeconds) {
+        m_errorX = reference.getX() - pose.getX();
+        m_errorY = reference.getY() - pose.getY();
+        m_errorTheta = MathUtil.angleModulus(reference.getRotation().getRadians() - pose.getRotation().getRadians());
+
+        // Saturation is judged per axis against the same limits the output is clamped to
+        double vx = referenceVelocityX + m_x.calculate(m_errorX, dtSeconds, referenceVelocityX, m_maxVelocity);
+        double vy = referenceVelocityY + m_y.calculate(m_errorY, dtSeconds, referenceVelocityY, m_maxVelocity);
+        double omega = referenceOmega + m_theta.calculate(m_errorTheta, dtSeconds, referenceOmega, m_maxAngularVelocity);
+
+        // Limit the speed without changing the direction of travel
+        double speed = Math.hypot(vx, vy);
+        if (speed > m_maxVelocity) {
+            vx *= m_maxVelocity / speed;
+            vy *= m_maxVelocity / speed;
+        }
+        omega = MathUtil.clamp(omega, -m_maxAngularVelocity, m_maxAngularVelocity);
+
+        return ChassisSpeeds.fromFieldRelativeSpeeds(vx, vy, omega, pose.getRotation());
+    }
+
+    /**
+     * Drives onto a fixed reference.
+     */
+    public ChassisSpeeds calculate(Pose2d pose, Pose2d reference, double dtSeconds) {
+        return calculate(pose, reference, 0.0, 0.0, 0.0, dtSeconds);
+    }
+
+    /**
+     * @return True if the last calculate() found the robot within tolerance of the reference
+     */
+    public boolean atReference() {
+        return Math.hypot(m_errorX, m_errorY) < m_positionTolerance && Math.abs(m_errorTheta) < m_headingTolerance;
+    }
+
+    /**
+     * @return Distance from the reference at the last calculate(), in meters
+     */
+    public double getPositionError() {
+        return Math.hypot(m_errorX, m_errorY);
+    }
+
+    /**
+     * @return Heading error at the last calculate(), in radians
+     */
+    public double getHeadingError() {
+        return m_errorTheta;
+    }
+
+    /**
+     * PID on one axis with a clamped, conditionally integrating integrator.
+     */
+    private static final class Axis {
+        private final Gains m_gains;
+        private double m_integral; // output of the integral term
+        private double m_lastError = Double.NaN;
+
+        Axis(Gains gains) {
+            m_gains = gains;
+        }
+
+        void reset() {
+            m_integral = 0.0;
+            m_lastError = Double.NaN;
+        }
+
+        double calculate(double error, double dtSeconds, double feedforward, double outputLimit) {
+            double derivative = Double.isNaN(m_lastError) || dtSeconds <= 0.0 ? 0.0 : (error - m_lastError) / dtSeconds;
+            m_lastError = error;
+
+            double proportional = m_gains.kP * error;
+            double damping = m_gains.kD * derivative;
+
+            double integral = m_integral;
+            if (dtSeconds > 0.0) {
+                integral = MathUtil.clamp(m_integral + m_gains.kI * error * dtSeconds,
+                    -m_gains.integratorLimit, m_gains.integratorLimit);
+            }
+
+            // Only keep integrating if that does not push an already saturated output further
+            double output = feedforward + proportional + integral + damping;
+            if (Math.abs(output) <= outputLimit || Math.signum(output) != Math.signum(error)) {
+                m_integral = integral;
+            }
+            return proportional + m_integral + damping;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package frc.lib.util;
+
+/**
+ * Bounded ring of timestamped odometry samples (gyro yaw plus each module's drive
+ * distance and angle) stored in primitive arrays, so adding and draining samples
+ * allocates nothing. One thread adds samples while another drains them; both sides
+ * hold the buffer's lock only long enough to copy numbers in or out. When the buffer
+ * is full the oldest sample is overwritten.
+ *
+ * Clearing the buffer fences it at a timestamp: a sample the producer took before the
+ * clear but adds after it is dropped, so nothing from before a reset is ever drained.
+ */
+public final class OdometrySampleBuffer {
+    private final int m_moduleCount;
+    private final double[] m_timestamps;
+    private final double[] m_yawDegrees;
+    private final double[][] m_distances; // [sample][module]
+    private final double[][] m_angles; // [sample][module]
+
+    private int m_head; // oldest sample
+    private int m_size;
+    private long m_overwritten;
+    private double m_clearedAt = Double.NEGATIVE_INFINITY;
+
+    /**
+     * @param capacity The number of samples kept before the oldest is overwritten
+     * @param moduleCount The number of swerve modules in each sample
+     */
+    public OdometrySampleBuffer(int capacity, int moduleCount) {
+        m_moduleCount = moduleCount;
+        m_timestamps = new double[capacity];
+        m_yawDegrees = new double[capacity];
+        m_distances = new double[capacity][moduleCount];
+        m_angles = new double[capacity][moduleCount];
+    }
+
+    /**
+     * Adds a sample, overwriting the oldest one if the buffer is full. Samples taken
+     * before the last clear are dropped.
+     * @param timestampSeconds FPGA time the sample was taken
+     * @param yawDegrees Gyro yaw
+     * @param distances Each module's drive distance in meters, copied
+     * @param anglesDegrees Each module's angle, copied
+     */
+    public synchronized void add(double timestampSeconds, double yawDegrees, double[] distances, double[] anglesDegrees) {
+        if (timestampSeconds < m_clearedAt) {
+            return;
+        }
+
+        int index;
+        if (m_size == m_timestamps.length) {
+            index = m_head;
+            m_head = (m_head + 1) % m_timestamps.length;
+            m_overwritten++;
+        } else {
+            index = (m_head + m_size) % m_timestamps.length;
+            m_size++;
+        }
+
+        m_timestamps[index] = timestampSeconds;
+        m_yawDegrees[index] = yawDegrees;
+        System.arraycopy(distances, 0, m_distances[index], 0, m_moduleCount);
+        System.arraycopy(anglesDegrees, 0, m_angles[index], 0, m_moduleCount);
+    }
+
+    /**
+     * Moves samples out of the buffer, oldest first, into the given arrays. Samples that
+     * do not fit stay in the buffer for the next drain.
+     * @return The number of samples copied
+     */
+    public synchronized int drain(double[] timestamps, double[] yawDegrees, double[][] distances, double[][] anglesDegrees) {
+        int count = Math.min(m_size, timestamps.length);
+        for (int i = 0; i < count; i++) {
+            int index = (m_head + i) % m_timestamps.length;
+            timestamps[i] = m_timestamps[index];
+            yawDegrees[i] = m_yawDegrees[index];
+            System.arraycopy(m_distances[index], 0, distances[i], 0, m_moduleCount);
+            System.arraycopy(m_angles[index], 0, anglesDegrees[i], 0, m_moduleCount);
+        }
+
+        m_head = (m_head + count) % m_timestamps.length;
+        m_size -= count;
+        return count;
+    }
+
+    /**
+     * Throws away every sample and refuses any taken before the given time.
+     * @param timestampSeconds FPGA time of the clear, samples taken before it are dropped
+     */
+    public synchronized void clear(double timestampSeconds) {
+        m_head = 0;
+        m_size = 0;
+        m_clearedAt = timestampSeconds;
+    }
+
+    public synchronized int size() {
+        return m_size;
+    }
+
+    public int capacity() {
+        return m_timestamps.length;
+    }
+
+    /**
+     * @return Samples lost because the buffer was not drained in time
+     */
+    public synchronized long getOverwritten() {
+        return m_overwritten;
+    }
+}
@@ -0,0 +1,110 @@
+package frc.lib.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * Bounded ring of timestamped poses stored in primitive arrays. Recording a pose
+ * allocates nothing, and a pose at any time inside the window can be looked up by
+ * interpolating between the two samples around it. Safe to record from one thread
+ * and look up from others.
+ */
+public final class PoseHistory {
+    private final double[] m_timestamps;
+    private final double[] m_x;
+    private final double[] m_y;
+    private final double[] m_theta; // radians
+    private int m_head; // oldest sample
+    private int m_size;
+
+    /**
+     * @param capacity The number of poses kept before the oldest is overwritten
+     */
+    public PoseHistory(int capacity) {
+        m_timestamps = new double[capacity];
+        m_x = new double[capacity];
+        m_y = new double[capacity];
+        m_theta = new double[capacity];
+    }
+
+    /**
+     * Records a pose. Poses must be added in time order, older ones are ignored.
+     */
+    public synchronized void add(double timestampSeconds, Pose2d pose) {
+        if (m_size > 0 && timestampSeconds <= m_timestamps[index(m_size - 1)]) {
+            return;
+        }
+
+        int index;
+        if (m_size == m_timestamps.length) {
+            index = m_head;
+            m_head = (m_head + 1) % m_timestamps.length;
+        } else {
+            index = index(m_size);
+            m_size++;
+        }
+
+        m_timestamps[index] = timestampSeconds;
+        m_x[index] = pose.getX();
+        m_y[index] = pose.getY();
+        m_theta[index] = pose.getRotation().getRadians();
+    }
+
+    /**
+     * @param timestampSeconds FPGA time to look up
+     * @return The pose at that time, interpolated between the samples around it and clamped
+     * to the oldest and newest samples, or null if the history is empty
+     */
+    public synchronized Pose2d getPoseAt(double timestampSeconds) {
+        if (m_size == 0) {
+            return null;
+        }
+
+        if (timestampSeconds <= m_timestamps[m_head]) {
+            return toPose(m_head);
+        }
+        int newest = index(m_size - 1);
+        if (timestampSeconds >= m_timestamps[newest]) {
+            return toPose(newest);
+        }
+
+        // Binary search for the first sample after the timestamp
+        int low = 1;
+        int high = m_size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (m_timestamps[index(mid)] <= timestampSeconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int after = index(low);
+        int before = index(low - 1);
+        double t = (timestampSeconds - m_timestamps[before]) / (m_timestamps[after] - m_timestamps[before]);
+        double theta = m_theta[before] + MathUtil.angleModulus(m_theta[after] - m_theta[before]) * t;
+        return new Pose2d(
+            MathUtil.interpolate(m_x[before], m_x[after], t),
+            MathUtil.interpolate(m_y[before], m_y[after], t),
+            new Rotation2d(theta));
+    }
+
+    public synchronized void clear() {
+        m_head = 0;
+        m_size = 0;
+    }
+
+    public synchronized int size() {
+        return m_size;
+    }
+
+    private int index(int offset) {
+        return (m_head + offset) % m_timestamps.length;
+    }
+
+    private Pose2d toPose(int index) {
+        return new Pose2d(m_x[index], m_y[index], new Rotation2d(m_theta[index]));
+    }
+}
@@ -0,0 +1,98 @@
+package frc.lib.util;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.geometry.Twist2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.math.kinematics.SwerveModuleState;
+
+/**
+ * Swerve inverse kinematics that account for the robot rotating while it translates.
+ *
+ * First order kinematics hold each module's velocity constant over a loop, but the
+ * robot turns during that loop, so translating while rotating drifts sideways and
+ * curves. discretize() picks the constant chassis speeds whose arc actually ends at the
+ * commanded pose after one loop, and toModuleStates() also returns how fast each module
+ * must steer (from the chassis acceleration) so the angle motors can be fed forward
+ * instead of lagging behind.
+ */
+public class SecondOrderSwerveKinematics {
+    private final Translation2d[] m_modules;
+    private final double m_maxSpeed;
+
+    /**
+     * @param maxSpeed Fastest a module can drive, in meters per second
+     * @param moduleLocations Each module's position relative to the robot center
+     */
+    public SecondOrderSwerveKinematics(double maxSpeed, Translation2d... moduleLocations) {
+        m_modules = moduleLocations;
+        m_maxSpeed = maxSpeed;
+    }
+
+    /**
+     * @param speeds Chassis speeds to hold for one loop
+     * @param dtSeconds Loop period
+     * @return Speeds that, driven along the arc they describe, end one loop later where
+     * holding the given speeds in a straight line would have
+     */
+    public static ChassisSpeeds discretize(ChassisSpeeds speeds, double dtSeconds) {
+        Pose2d desiredDelta = new Pose2d(
+            speeds.vxMetersPerSecond * dtSeconds,
+            speeds.vyMetersPerSecond * dtSeconds,
+            new Rotation2d(speeds.omegaRadiansPerSecond * dtSeconds));
+        Twist2d twist = new Pose2d().log(desiredDelta);
+        return new ChassisSpeeds(twist.dx / dtSeconds, twist.dy / dtSeconds, twist.dtheta / dtSeconds);
+    }
+
+    /**
+     * Fills module states and steering rates for the given chassis motion. Wheel speeds are
+     * desaturated to the max speed, scaling the steering rates with them.
+     * @param speeds Robot relative chassis speeds
+     * @param accelerations Robot relative chassis accelerations, in meters and radians per second squared
+     * @param states Filled with each module's speed and angle
+     * @param steerRates Filled with each module's steering rate, in radians per second
+     */
+    public void toModuleStates(ChassisSpeeds speeds, ChassisSpeeds accelerations, SwerveModuleState[] states, double[] steerRates) {
+        double vx = speeds.vxMetersPerSecond;
+        double vy = speeds.vyMetersPerSecond;
+        double omega = speeds.omegaRadiansPerSecond;
+        double ax = accelerations.vxMetersPerSecond;
+        double ay = accelerations.vyMetersPerSecond;
+        double alpha = accelerations.omegaRadiansPerSecond;
+
+        double fastest = 0.0;
+        for (int i = 0; i < m_modules.length; i++) {
+            double rx = m_modules[i].getX();
+            double ry = m_modules[i].getY();
+
+            // Velocity and acceleration of a point on a rigid body that translates and rotates
+            double moduleVx = vx - omega * ry;
+            double moduleVy = vy + omega * rx;
+            double moduleAx = ax - alpha * ry - omega * omega * rx;
+            double moduleAy = ay + alpha * rx - omega * omega * ry;
+
+            double speedSquared = moduleVx * moduleVx + moduleVy * moduleVy;
+            double speed = Math.sqrt(speedSquared);
+            if (speed > 1e-6) {
+                states[i].speedMetersPerSecond = speed;
+                states[i].angle = new Rotation2d(moduleVx, moduleVy);
+                // Rate the velocity vector turns at: (v x a) / |v|^2
+                steerRates[i] = (moduleVx * moduleAy - moduleVy * moduleAx) / speedSquared;
+            } else {
+                // Not moving, so there is no direction to steer towards
+                states[i].speedMetersPerSecond = 0.0;
+                steerRates[i] = 0.0;
+            }
+            fastest = Math.max(fastest, speed);
+        }
+
+        if (fastest > m_maxSpeed) {
+            double scale = m_maxSpeed / fastest;
+            for (int i = 0; i < m_modules.length; i++) {
+                states[i].speedMetersPerSecond *= scale;
+                steerRates[i] *= scale;
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package frc.lib.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, lock-free queue for handing objects from exactly one producer thread to
+ * exactly one consumer thread. Neither side ever blocks: offer fails when the buffer
+ * is full and poll returns null when it is empty.
+ */
+public final class SpscRingBuffer<T> {
+    private final Object[] m_buffer;
+    private final int m_mask;
+    private final AtomicLong m_head = new AtomicLong(); // next slot to read, only written by the consumer
+    private final AtomicLong m_tail = new AtomicLong(); // next slot to write, only written by the producer
+
+    /**
+     * @param capacity The number of items the buffer can hold, rounded up to a power of two
+     */
+    public SpscRingBuffer(int capacity) {
+        int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        m_buffer = new Object[size];
+        m_mask = size - 1;
+    }
+
+    /**
+     * Adds an item, only call from the producer thread.
+     * @return false if the buffer was full and the item was not added
+     */
+    public boolean offer(T item) {
+        long tail = m_tail.get();
+        if (tail - m_head.get() >= m_buffer.length) {
+            return false;
+        }
+
+        m_buffer[(int) tail & m_mask] = item;
+        m_tail.lazySet(tail + 1); // publishes the slot write to the consumer
+        return true;
+    }
+
+    /**
+     * Removes the oldest item, only call from the consumer thread.
+     * @return The oldest item, or null if the buffer is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T poll() {
+        long head = m_head.get();
+        if (head >= m_tail.get()) {
+            return null;
+        }
+
+        int index = (int) head & m_mask;
+        T item = (T) m_buffer[index];
+        m_buffer[index] = null;
+        m_head.lazySet(head + 1); // hands the slot back to the producer
+        return item;
+    }
+
+    public int size() {
+        return (int) (m_tail.get() - m_head.get());
+    }
+
+    public int capacity() {
+        return m_buffer.length;
+    }
+}
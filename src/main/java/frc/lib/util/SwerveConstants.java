@@ -27,11 +27,13 @@ public final class SwerveConstants {
 
         /* Swerve Kinematics 
          * No need to ever change this unless you are not doing a traditional rectangular/square 4 module swerve */
-         public static final SwerveDriveKinematics swerveKinematics = new SwerveDriveKinematics(
+        public static final Translation2d[] moduleTranslations = {
             new Translation2d(wheelBase / 2.0, trackWidth / 2.0),
             new Translation2d(wheelBase / 2.0, -trackWidth / 2.0),
             new Translation2d(-wheelBase / 2.0, trackWidth / 2.0),
-            new Translation2d(-wheelBase / 2.0, -trackWidth / 2.0));
+            new Translation2d(-wheelBase / 2.0, -trackWidth / 2.0)
+        };
+         public static final SwerveDriveKinematics swerveKinematics = new SwerveDriveKinematics(moduleTranslations);
 
         /* Module Gear Ratios */
         public static final double driveGearRatio = chosenModule.driveGearRatio;
@@ -65,6 +67,8 @@ public final class SwerveConstants {
         public static final double angleKI = chosenModule.angleKI;
         public static final double angleKD = chosenModule.angleKD;
         public static final double angleKF = chosenModule.angleKF;
+        /** Percent output per radian per second of steering, feeds forward the steering rate from second order kinematics */
+        public static final double angleKV = 1.0 / (Units.rotationsPerMinuteToRadiansPerSecond(6380.0) / angleGearRatio); //TODO: This must be tuned to specific robot
 
         /* Drive Motor PID Values */
         public static final double driveKP = 0.05; //TODO: This must be tuned to specific robot
@@ -84,10 +88,29 @@ public final class SwerveConstants {
         /** Radians per Second */
         public static final double maxAngularVelocity = 10.0; //TODO: This must be tuned to specific robot
 
+        /* Second order kinematics, see SecondOrderSwerveKinematics */
+        public static final SecondOrderSwerveKinematics secondOrderKinematics = new SecondOrderSwerveKinematics(maxSpeed, moduleTranslations);
+        /** Seconds a commanded chassis speed is held for, the scheduler period */
+        public static final double driveLoopPeriod = 0.02;
+
+        /* Setpoint Generator Limits, see SwerveSetpointGenerator */
+        /** Meters per Second squared, about what the wheels can put down before slipping */
+        public static final double maxModuleAcceleration = 8.0; //TODO: This must be tuned to specific robot
+        /** Radians per Second */
+        public static final double maxModuleSteerVelocity = 4.0 * Math.PI; //TODO: This must be tuned to specific robot
+
         /* Neutral Modes */
         public static final NeutralMode angleNeutralMode = NeutralMode.Coast;
         public static final NeutralMode driveNeutralMode = NeutralMode.Brake;
 
+        /* CAN Status Frame Periods (ms)
+         * Feedback frames match the 200 Hz odometry thread, frames nothing reads are slowed to cut bus load */
+        public static final int feedbackStatusPeriod = 5;
+        public static final int generalStatusPeriod = 20;
+        public static final int canCoderSensorDataPeriod = 20;
+        public static final int unusedStatusPeriod = 255;
+        public static final int statusFrameTimeout = 100;
+
         // Updated encoder offsets, need to convert to degrees and set as angleOffset
         // Front left: -6368
         //back left: 19290
@@ -145,6 +168,47 @@ public final class SwerveConstants {
         public static final double kPXController = 1;
         public static final double kPYController = 1;
         public static final double kPThetaController = 1;
+
+        /* Waypoint Follower */
+        public static final double kWaypointPassRadius = 0.3; // meters, an intermediate waypoint counts as reached this close
+        public static final double kWaypointCaptureRadius = 0.3; // meters, inside this the final waypoint is driven at directly
+        public static final double kWaypointPositionTolerance = 0.05; // meters
+        public static final double kWaypointHeadingTolerance = Math.toRadians(3.0);
+
+        /* Holonomic Controller */
+        public static final double kITranslationController = 0.1;
+        public static final double kDTranslationController = 0.0;
+        public static final double kTranslationIntegratorLimit = 0.3; // meters per second
+        public static final double kIThetaController = 0.1;
+        public static final double kDThetaController = 0.0;
+        public static final double kThetaIntegratorLimit = 0.5; // radians per second
+        public static final HolonomicController.Gains kXGains = new HolonomicController.Gains(
+            kPXController, kITranslationController, kDTranslationController, kTranslationIntegratorLimit);
+        public static final HolonomicController.Gains kYGains = new HolonomicController.Gains(
+            kPYController, kITranslationController, kDTranslationController, kTranslationIntegratorLimit);
+        public static final HolonomicController.Gains kThetaGains = new HolonomicController.Gains(
+            kPThetaController, kIThetaController, kDThetaController, kThetaIntegratorLimit);
+
+        /* Auto Align */
+        public static final double kAlignStandoffMeters = 0.75; // robot center to tag when scoring
+        public static final double kAlignMaxSpeedMetersPerSecond = 1.5;
+        public static final double kAlignPositionTolerance = 0.03; // meters
+        public static final double kAlignHeadingTolerance = Math.toRadians(2.0);
+        public static final double kAlignTimeoutSeconds = 2.0; // give up if not aligned by then
+        public static final double kPAlignTranslation = 3.0; // stiffer than path following, the goal is close and fixed
+        public static final double kPAlignTheta = 4.0;
+        public static final HolonomicController.Gains kAlignTranslationGains = new HolonomicController.Gains(
+            kPAlignTranslation, kITranslationController, kDTranslationController, kTranslationIntegratorLimit);
+        public static final HolonomicController.Gains kAlignThetaGains = new HolonomicController.Gains(
+            kPAlignTheta, kIThetaController, kDThetaController, kThetaIntegratorLimit);
+
+        /* Drive To Tag */
+        public static final double kDriveToTagReplanDistance = 0.05; // meters the goal must move to plan a new path
+        public static final double kDriveToTagReplanAngle = Math.toRadians(3.0);
+
+        /* Trajectories */
+        public static final double kMaxCentripetalAccelerationMetersPerSecondSquared = 2.0;
+        public static final double kTrajectorySamplePeriod = 0.02; // seconds, one sample per loop
     
         /* Constraint for the motion profilied robot angle controller */
         public static final TrapezoidProfile.Constraints kThetaControllerConstraints =
@@ -0,0 +1,158 @@
+package frc.lib.util;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * Plans each loop's chassis speeds from the previous setpoint instead of jumping to the
+ * requested speeds. A step moves part of the way from the previous setpoint towards the
+ * request, as far as every module allows:
+ * <ul>
+ * <li>no module's velocity changes by more than the max acceleration over one loop, which
+ * bounds the force each wheel has to put into the carpet (slip and current spikes)</li>
+ * <li>no moving module has to steer faster than the max steering velocity; a module that
+ * must reverse flips its wheel instead of spinning 180 degrees under load</li>
+ * <li>no module is asked to drive faster than the max wheel speed</li>
+ * </ul>
+ * Module velocities are linear in the chassis speeds, so limiting the step along the line
+ * between the two setpoints keeps every module consistent with a rigid robot.
+ */
+public class SwerveSetpointGenerator {
+    /** Modules slower than this are treated as stopped and may steer freely */
+    private static final double MOVING_SPEED = 0.05; // meters per second
+    private static final double EPSILON = 1e-9;
+    private static final int STEER_SEARCH_ITERATIONS = 10;
+
+    private final Translation2d[] m_modules;
+    private final double m_maxSpeed;
+    private final double m_maxAcceleration;
+    private final double m_maxSteerVelocity;
+
+    private ChassisSpeeds m_setpoint = new ChassisSpeeds();
+
+    /**
+     * @param maxSpeed Fastest a module may drive, in meters per second
+     * @param maxAcceleration Fastest a module's velocity may change, in meters per second squared
+     * @param maxSteerVelocity Fastest a moving module may steer, in radians per second
+     * @param moduleLocations Each module's position relative to the robot center
+     */
+    public SwerveSetpointGenerator(double maxSpeed, double maxAcceleration, double maxSteerVelocity,
+            Translation2d... moduleLocations) {
+        m_modules = moduleLocations;
+        m_maxSpeed = maxSpeed;
+        m_maxAcceleration = maxAcceleration;
+        m_maxSteerVelocity = maxSteerVelocity;
+    }
+
+    /**
+     * Starts planning from the given speeds, e.g. what the robot is measured doing after
+     * it was disabled or driven some other way.
+     */
+    public void reset(ChassisSpeeds speeds) {
+        m_setpoint = speeds;
+    }
+
+    public ChassisSpeeds getSetpoint() {
+        return m_setpoint;
+    }
+
+    /**
+     * @param desired Robot relative chassis speeds being asked for
+     * @param dtSeconds Time until the next setpoint
+     * @return The next setpoint, as close to the request as the limits allow
+     */
+    public ChassisSpeeds generate(ChassisSpeeds desired, double dtSeconds) {
+        desired = limitWheelSpeed(desired);
+
+        double prevVx = m_setpoint.vxMetersPerSecond;
+        double prevVy = m_setpoint.vyMetersPerSecond;
+        double prevOmega = m_setpoint.omegaRadiansPerSecond;
+        double deltaVx = desired.vxMetersPerSecond - prevVx;
+        double deltaVy = desired.vyMetersPerSecond - prevVy;
+        double deltaOmega = desired.omegaRadiansPerSecond - prevOmega;
+
+        double maxVelocityStep = m_maxAcceleration * dtSeconds;
+        double maxSteerStep = m_maxSteerVelocity * dtSeconds;
+
+        // Acceleration: each module's velocity change is linear in the step, so solve directly
+        double step = 1.0;
+        for (Translation2d module : m_modules) {
+            double changeX = deltaVx - deltaOmega * module.getY();
+            double changeY = deltaVy + deltaOmega * module.getX();
+            double change = Math.hypot(changeX, changeY);
+            if (change > EPSILON) {
+                step = Math.min(step, maxVelocityStep / change);
+            }
+        }
+
+        // Steering: search each moving module for the largest step it can turn through
+        for (Translation2d module : m_modules) {
+            double rx = module.getX();
+            double ry = module.getY();
+            double startX = prevVx - prevOmega * ry;
+            double startY = prevVy + prevOmega * rx;
+            if (Math.hypot(startX, startY) < MOVING_SPEED) {
+                continue;
+            }
+
+            double changeX = deltaVx - deltaOmega * ry;
+            double changeY = deltaVy + deltaOmega * rx;
+            if (steerAngle(startX, startY, startX + changeX * step, startY + changeY * step) <= maxSteerStep) {
+                continue;
+            }
+
+            double low = 0.0;
+            double high = step;
+            for (int i = 0; i < STEER_SEARCH_ITERATIONS; i++) {
+                double mid = 0.5 * (low + high);
+                if (steerAngle(startX, startY, startX + changeX * mid, startY + changeY * mid) <= maxSteerStep) {
+                    low = mid;
+                } else {
+                    high = mid;
+                }
+            }
+            step = low;
+        }
+
+        m_setpoint = new ChassisSpeeds(
+            prevVx + deltaVx * step,
+            prevVy + deltaVy * step,
+            prevOmega + deltaOmega * step);
+        return m_setpoint;
+    }
+
+    /**
+     * Scales the speeds down, keeping their direction, until no module is faster than the max speed.
+     */
+    private ChassisSpeeds limitWheelSpeed(ChassisSpeeds speeds) {
+        double fastest = 0.0;
+        for (Translation2d module : m_modules) {
+            double moduleVx = speeds.vxMetersPerSecond - speeds.omegaRadiansPerSecond * module.getY();
+            double moduleVy = speeds.vyMetersPerSecond + speeds.omegaRadiansPerSecond * module.getX();
+            fastest = Math.max(fastest, Math.hypot(moduleVx, moduleVy));
+        }
+
+        if (fastest <= m_maxSpeed) {
+            return speeds;
+        }
+        double scale = m_maxSpeed / fastest;
+        return new ChassisSpeeds(
+            speeds.vxMetersPerSecond * scale,
+            speeds.vyMetersPerSecond * scale,
+            speeds.omegaRadiansPerSecond * scale);
+    }
+
+    /**
+     * @return How far a module has to steer between two velocities, allowing it to reverse
+     * the wheel instead of turning more than 90 degrees. Zero if the end velocity is too
+     * slow to have a direction.
+     */
+    private static double steerAngle(double fromX, double fromY, double toX, double toY) {
+        if (Math.hypot(toX, toY) < MOVING_SPEED) {
+            return 0.0;
+        }
+        double angle = Math.abs(MathUtil.angleModulus(Math.atan2(toY, toX) - Math.atan2(fromY, fromX)));
+        return angle > Math.PI / 2.0 ? Math.PI - angle : angle;
+    }
+}
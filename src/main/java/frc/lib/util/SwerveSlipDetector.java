@@ -0,0 +1,191 @@
+package frc.lib.util;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * Checks each odometry sample's wheel motion against a rigid robot before it is
+ * integrated. All modules of a rigid robot move by the same translation plus the
+ * rotation the gyro measured, so a module whose motion does not fit the others is
+ * slipping (or was lifted, or is being dragged) and its distance is replaced with the
+ * motion the other modules imply.
+ *
+ * The gyro is trusted for rotation since it does not slip. When most modules disagree
+ * at once, e.g. the whole robot is skidding after a collision, no module can be picked
+ * out, so every module is replaced with the best rigid fit of all of them.
+ */
+public class SwerveSlipDetector {
+    /** Modules whose motion is further than this from the rigid fit are slipping, meters per second */
+    private static final double SLIP_SPEED = 0.3;
+    /** Slip threshold used while a collision is in progress, tighter since every module is suspect */
+    private static final double COLLISION_SLIP_SPEED = 0.15;
+    /** Weight of each sample in the running slip fraction */
+    private static final double SLIP_FRACTION_ALPHA = 0.01;
+
+    private final Translation2d[] m_modules;
+    private final int m_moduleCount;
+
+    /* Scratch space for one sample */
+    private final double[] m_dx;
+    private final double[] m_dy;
+    private final boolean[] m_slipping;
+    private double m_fitX;
+    private double m_fitY;
+
+    /* Metrics */
+    private final long[] m_slipSamples;
+    private final double[] m_residualSpeed;
+    private final double[] m_slipFraction;
+    private long m_samples;
+    private long m_skidSamples;
+
+    public SwerveSlipDetector(Translation2d... moduleLocations) {
+        m_modules = moduleLocations;
+        m_moduleCount = moduleLocations.length;
+        m_dx = new double[m_moduleCount];
+        m_dy = new double[m_moduleCount];
+        m_slipping = new boolean[m_moduleCount];
+        m_slipSamples = new long[m_moduleCount];
+        m_residualSpeed = new double[m_moduleCount];
+        m_slipFraction = new double[m_moduleCount];
+    }
+
+    /**
+     * Replaces the distance moved by slipping modules, in place.
+     * @param dtSeconds Time since the previous sample
+     * @param yawDeltaRadians Rotation the gyro measured since the previous sample, CCW positive
+     * @param distanceDeltas Distance each module drove since the previous sample, in meters
+     * @param anglesDegrees Each module's angle
+     * @param collision True while a collision is suspected
+     */
+    public void correct(double dtSeconds, double yawDeltaRadians, double[] distanceDeltas, double[] anglesDegrees, boolean collision) {
+        if (dtSeconds <= 0.0) {
+            return;
+        }
+        m_samples++;
+
+        for (int i = 0; i < m_moduleCount; i++) {
+            double angle = Math.toRadians(anglesDegrees[i]);
+            m_dx[i] = distanceDeltas[i] * Math.cos(angle);
+            m_dy[i] = distanceDeltas[i] * Math.sin(angle);
+            m_slipping[i] = false;
+        }
+
+        // Fit with every module, then again without the worst one so it cannot drag the fit
+        double threshold = (collision ? COLLISION_SLIP_SPEED : SLIP_SPEED) * dtSeconds;
+        int worst = -1;
+        double worstResidual = 0.0;
+        fitAndMeasure(yawDeltaRadians, dtSeconds);
+        for (int i = 0; i < m_moduleCount; i++) {
+            double residual = m_residualSpeed[i] * dtSeconds;
+            if (residual > threshold && residual > worstResidual) {
+                worst = i;
+                worstResidual = residual;
+            }
+        }
+        if (worst >= 0) {
+            m_slipping[worst] = true;
+            fitAndMeasure(yawDeltaRadians, dtSeconds);
+        }
+
+        int slipCount = 0;
+        for (int i = 0; i < m_moduleCount; i++) {
+            if (m_residualSpeed[i] * dtSeconds > threshold) {
+                m_slipping[i] = true;
+            }
+            if (m_slipping[i]) {
+                slipCount++;
+                m_slipSamples[i]++;
+            }
+            m_slipFraction[i] += SLIP_FRACTION_ALPHA * ((m_slipping[i] ? 1.0 : 0.0) - m_slipFraction[i]);
+        }
+        if (slipCount == 0) {
+            return;
+        }
+
+        // Too few modules agree to single out the bad ones, fall back to the fit of all of them
+        boolean skidding = slipCount * 2 > m_moduleCount;
+        if (skidding) {
+            m_skidSamples++;
+            for (int i = 0; i < m_moduleCount; i++) {
+                m_slipping[i] = false;
+            }
+        }
+        fitTranslation(yawDeltaRadians);
+
+        for (int i = 0; i < m_moduleCount; i++) {
+            if (skidding || m_slipping[i]) {
+                // The rigid motion at this module, projected onto the direction its wheel rolls
+                double angle = Math.toRadians(anglesDegrees[i]);
+                double expectedX = m_fitX - yawDeltaRadians * m_modules[i].getY();
+                double expectedY = m_fitY + yawDeltaRadians * m_modules[i].getX();
+                distanceDeltas[i] = expectedX * Math.cos(angle) + expectedY * Math.sin(angle);
+            }
+        }
+    }
+
+    /**
+     * Fits the translation to the modules not marked slipping and stores every module's
+     * distance from that fit as a speed.
+     */
+    private void fitAndMeasure(double yawDeltaRadians, double dtSeconds) {
+        fitTranslation(yawDeltaRadians);
+        for (int i = 0; i < m_moduleCount; i++) {
+            double expectedX = m_fitX - yawDeltaRadians * m_modules[i].getY();
+            double expectedY = m_fitY + yawDeltaRadians * m_modules[i].getX();
+            m_residualSpeed[i] = Math.hypot(m_dx[i] - expectedX, m_dy[i] - expectedY) / dtSeconds;
+        }
+    }
+
+    /**
+     * Sets the fit to the robot translation that best explains the modules not marked
+     * slipping, given the gyro's rotation.
+     */
+    private void fitTranslation(double yawDeltaRadians) {
+        double sumX = 0.0;
+        double sumY = 0.0;
+        int count = 0;
+        for (int i = 0; i < m_moduleCount; i++) {
+            if (!m_slipping[i]) {
+                // Remove the part of the module's motion that comes from the robot rotating
+                sumX += m_dx[i] + yawDeltaRadians * m_modules[i].getY();
+                sumY += m_dy[i] - yawDeltaRadians * m_modules[i].getX();
+                count++;
+            }
+        }
+        m_fitX = count > 0 ? sumX / count : 0.0;
+        m_fitY = count > 0 ? sumY / count : 0.0;
+    }
+
+    public boolean isSlipping(int module) {
+        return m_slipping[module];
+    }
+
+    /**
+     * @return The module's distance from the rigid fit at the latest sample, in meters per second
+     */
+    public double getResidualSpeed(int module) {
+        return m_residualSpeed[module];
+    }
+
+    /**
+     * @return Running average of the fraction of samples the module was slipping in
+     */
+    public double getSlipFraction(int module) {
+        return m_slipFraction[module];
+    }
+
+    public long getSlipSamples(int module) {
+        return m_slipSamples[module];
+    }
+
+    /**
+     * @return Samples where most modules slipped at once and every module was replaced
+     */
+    public long getSkidSamples() {
+        return m_skidSamples;
+    }
+
+    public long getSamples() {
+        return m_samples;
+    }
+}
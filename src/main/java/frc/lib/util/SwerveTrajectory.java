@@ -0,0 +1,338 @@
+package frc.lib.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.Trajectory;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.math.trajectory.TrajectoryGenerator;
+
+/**
+ * A time parameterized swerve trajectory, resampled at a fixed period into packed rows of
+ * doubles. Generating one fits splines through the waypoints and limits them by the
+ * config's velocity, acceleration and constraints, which is far too slow for the loop;
+ * do it at build time and write() it, or once at startup. Sampling is then an index and
+ * one interpolation.
+ *
+ * The file format is a header (magic, version, sample count, sample period) followed by
+ * one row per sample of t, x, y, heading, vx, vy and omega, all big endian. load() maps
+ * the file and samples straight from the mapping, nothing is parsed or copied.
+ *
+ * Waypoint rotations are the robot's heading there, not the direction of travel: the
+ * path's direction is picked from the neighbouring waypoints, and the heading is
+ * interpolated separately between the times each waypoint is reached. Where the route
+ * doubles back on itself the robot stops and the path is split, since one spline
+ * cannot reverse.
+ */
+public final class SwerveTrajectory {
+    /** Turns sharper than this between legs are treated as a reversal */
+    private static final double REVERSAL_ANGLE = Math.PI / 2.0;
+
+    /* File format */
+    private static final int MAGIC = 0x5354524A; // "STRJ"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 24; // magic, version, count, sample period, padded to a whole double
+
+    /* Columns of each row */
+    private static final int T = 0;
+    private static final int X = 1;
+    private static final int Y = 2;
+    private static final int HEADING = 3; // radians, continuous
+    private static final int VX = 4; // field relative, meters per second
+    private static final int VY = 5;
+    private static final int OMEGA = 6; // radians per second
+    private static final int STRIDE = 7;
+
+    private final double m_samplePeriod;
+    private final int m_count;
+    private final DoubleBuffer m_rows; // read with absolute gets only, so it is safe to share
+
+    /**
+     * One sample of the trajectory, field relative. Reused by sample() to avoid allocating
+     * every loop.
+     */
+    public static final class State {
+        public double x;
+        public double y;
+        public double heading;
+        public double vx;
+        public double vy;
+        public double omega;
+
+        public Pose2d toPose() {
+            return new Pose2d(x, y, new Rotation2d(heading));
+        }
+    }
+
+    /**
+     * Wraps already sampled rows of t, x, y, heading, vx, vy and omega, at least two.
+     */
+    private SwerveTrajectory(double samplePeriod, int count, DoubleBuffer rows) {
+        m_samplePeriod = samplePeriod;
+        m_count = count;
+        m_rows = rows;
+    }
+
+    /**
+     * Maps a trajectory written by write().
+     * @throws IOException If the file cannot be read or is not a trajectory
+     */
+    public static SwerveTrajectory load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.load(); // fault the pages in now rather than on the first sample
+            if (buffer.limit() < HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file + " is not a version " + VERSION + " trajectory");
+            }
+            int count = buffer.getInt(8);
+            double samplePeriod = buffer.getDouble(12);
+            if (count < 2 || buffer.limit() != HEADER_BYTES + count * STRIDE * Double.BYTES) {
+                throw new IOException(file + " is truncated");
+            }
+
+            buffer.position(HEADER_BYTES);
+            return new SwerveTrajectory(samplePeriod, count, buffer.slice().asDoubleBuffer());
+        }
+    }
+
+    /**
+     * Writes the trajectory so load() can map it.
+     */
+    public void write(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + m_count * STRIDE * Double.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(m_count).putDouble(m_samplePeriod);
+        buffer.position(HEADER_BYTES);
+        for (int i = 0; i < m_count * STRIDE; i++) {
+            buffer.putDouble(m_rows.get(i));
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * @param config Velocity, acceleration and other limits on the path
+     * @param samplePeriod Time between stored samples, e.g. the loop period
+     * @param waypoints The route, with the robot's heading at each point
+     */
+    public static SwerveTrajectory generate(TrajectoryConfig config, double samplePeriod, Pose2d... waypoints) {
+        // Split the route where it doubles back, each leg starts and ends stopped
+        List<List<Pose2d>> legs = new ArrayList<>();
+        List<Pose2d> leg = new ArrayList<>();
+        for (Pose2d waypoint : waypoints) {
+            if (!leg.isEmpty()) {
+                Pose2d previous = leg.get(leg.size() - 1);
+                if (previous.getTranslation().getDistance(waypoint.getTranslation()) < 1e-6) {
+                    continue;
+                }
+                if (leg.size() >= 2 && isReversal(leg.get(leg.size() - 2), previous, waypoint)) {
+                    legs.add(leg);
+                    leg = new ArrayList<>();
+                    leg.add(previous);
+                }
+            }
+            leg.add(waypoint);
+        }
+        legs.add(leg);
+
+        List<Trajectory> trajectories = new ArrayList<>();
+        List<Double> waypointTimes = new ArrayList<>();
+        List<Double> waypointHeadings = new ArrayList<>();
+        double legStart = 0.0;
+        for (List<Pose2d> points : legs) {
+            if (points.size() < 2) {
+                continue;
+            }
+            Trajectory trajectory = TrajectoryGenerator.generateTrajectory(withTravelDirections(points), config);
+            trajectories.add(trajectory);
+            addWaypointTimes(trajectory, points, legStart, waypointTimes, waypointHeadings);
+            legStart += trajectory.getTotalTimeSeconds();
+        }
+
+        double duration = legStart;
+        int count = Math.max(2, (int) Math.ceil(duration / samplePeriod) + 1);
+        double[] rows = new double[count * STRIDE];
+
+        int legIndex = 0;
+        double legOffset = 0.0;
+        int waypointIndex = 0;
+        for (int i = 0; i < count; i++) {
+            double time = Math.min(i * samplePeriod, duration);
+            int row = i * STRIDE;
+            rows[row + T] = i * samplePeriod;
+
+            if (trajectories.isEmpty()) {
+                Pose2d only = waypoints.length > 0 ? waypoints[0] : new Pose2d();
+                rows[row + X] = only.getX();
+                rows[row + Y] = only.getY();
+                rows[row + HEADING] = only.getRotation().getRadians();
+                continue;
+            }
+
+            while (legIndex < trajectories.size() - 1
+                    && time > legOffset + trajectories.get(legIndex).getTotalTimeSeconds()) {
+                legOffset += trajectories.get(legIndex).getTotalTimeSeconds();
+                legIndex++;
+            }
+            Trajectory.State state = trajectories.get(legIndex).sample(time - legOffset);
+            rows[row + X] = state.poseMeters.getX();
+            rows[row + Y] = state.poseMeters.getY();
+            rows[row + VX] = state.velocityMetersPerSecond * state.poseMeters.getRotation().getCos();
+            rows[row + VY] = state.velocityMetersPerSecond * state.poseMeters.getRotation().getSin();
+
+            // Heading moves at a constant rate between the times the waypoints are reached
+            while (waypointIndex < waypointTimes.size() - 2 && time > waypointTimes.get(waypointIndex + 1)) {
+                waypointIndex++;
+            }
+            double startTime = waypointTimes.get(waypointIndex);
+            double startHeading = waypointHeadings.get(waypointIndex);
+            if (waypointIndex + 1 < waypointTimes.size()) {
+                double endTime = waypointTimes.get(waypointIndex + 1);
+                double endHeading = waypointHeadings.get(waypointIndex + 1);
+                double span = endTime - startTime;
+                double rate = span > 1e-9 ? (endHeading - startHeading) / span : 0.0;
+                rows[row + HEADING] = startHeading + rate * MathUtil.clamp(time - startTime, 0.0, span);
+                rows[row + OMEGA] = time < endTime ? rate : 0.0;
+            } else {
+                rows[row + HEADING] = startHeading;
+            }
+        }
+
+        return new SwerveTrajectory(samplePeriod, count, DoubleBuffer.wrap(rows));
+    }
+
+    /**
+     * @return True if the route turns back on itself at the middle point
+     */
+    private static boolean isReversal(Pose2d from, Pose2d via, Pose2d to) {
+        double in = Math.atan2(via.getY() - from.getY(), via.getX() - from.getX());
+        double out = Math.atan2(to.getY() - via.getY(), to.getX() - via.getX());
+        return Math.abs(MathUtil.angleModulus(out - in)) > REVERSAL_ANGLE;
+    }
+
+    /**
+     * @return The points with their rotations replaced by the direction the path travels through
+     * them: along the first and last segments at the ends, and from the previous towards the
+     * next point in between
+     */
+    private static List<Pose2d> withTravelDirections(List<Pose2d> points) {
+        List<Pose2d> spline = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            Pose2d before = points.get(Math.max(0, i - 1));
+            Pose2d after = points.get(Math.min(points.size() - 1, i + 1));
+            Rotation2d direction = new Rotation2d(after.getX() - before.getX(), after.getY() - before.getY());
+            spline.add(new Pose2d(points.get(i).getTranslation(), direction));
+        }
+        return spline;
+    }
+
+    /**
+     * Records when the trajectory passes each of the leg's waypoints and the robot's heading
+     * there, unwrapped so headings interpolate the short way around.
+     */
+    private static void addWaypointTimes(Trajectory trajectory, List<Pose2d> points, double legStart,
+            List<Double> times, List<Double> headings) {
+        List<Trajectory.State> states = trajectory.getStates();
+        int searchFrom = 0;
+        for (int i = 0; i < points.size(); i++) {
+            double time;
+            if (i == 0) {
+                time = 0.0;
+            } else if (i == points.size() - 1) {
+                time = trajectory.getTotalTimeSeconds();
+            } else {
+                // The spline passes through the waypoint, find the closest state after the last one
+                double closest = Double.MAX_VALUE;
+                int closestIndex = searchFrom;
+                for (int s = searchFrom; s < states.size(); s++) {
+                    double distance = states.get(s).poseMeters.getTranslation().getDistance(points.get(i).getTranslation());
+                    if (distance < closest) {
+                        closest = distance;
+                        closestIndex = s;
+                    }
+                }
+                searchFrom = closestIndex;
+                time = states.get(closestIndex).timeSeconds;
+            }
+
+            // The first point of every leg after the first is the end of the previous leg
+            if (i == 0 && !times.isEmpty()) {
+                continue;
+            }
+
+            double heading = points.get(i).getRotation().getRadians();
+            if (!headings.isEmpty()) {
+                double previous = headings.get(headings.size() - 1);
+                heading = previous + MathUtil.angleModulus(heading - previous);
+            }
+            times.add(legStart + time);
+            headings.add(heading);
+        }
+    }
+
+    /**
+     * Samples the trajectory, holding the first and last samples outside of it.
+     * @param timeSeconds Time since the trajectory started
+     * @param out Filled with the sample
+     */
+    public void sample(double timeSeconds, State out) {
+        double position = MathUtil.clamp(timeSeconds / m_samplePeriod, 0.0, m_count - 1);
+        int index = Math.min((int) position, m_count - 2);
+        double t = position - index;
+        int row = index * STRIDE;
+
+        out.x = interpolate(row, X, t);
+        out.y = interpolate(row, Y, t);
+        out.heading = interpolate(row, HEADING, t);
+        out.vx = interpolate(row, VX, t);
+        out.vy = interpolate(row, VY, t);
+        out.omega = interpolate(row, OMEGA, t);
+    }
+
+    private double interpolate(int row, int column, double t) {
+        return MathUtil.interpolate(m_rows.get(row + column), m_rows.get(row + STRIDE + column), t);
+    }
+
+    /**
+     * @return Time from the first to the last sample, in seconds
+     */
+    public double getDuration() {
+        return (m_count - 1) * m_samplePeriod;
+    }
+
+    public double getSamplePeriod() {
+        return m_samplePeriod;
+    }
+
+    public int getSampleCount() {
+        return m_count;
+    }
+
+    public Pose2d getInitialPose() {
+        return getPose(0);
+    }
+
+    public Pose2d getFinalPose() {
+        return getPose(m_count - 1);
+    }
+
+    private Pose2d getPose(int index) {
+        int row = index * STRIDE;
+        return new Pose2d(m_rows.get(row + X), m_rows.get(row + Y), new Rotation2d(m_rows.get(row + HEADING)));
+    }
+}
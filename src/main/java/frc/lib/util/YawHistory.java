@@ -0,0 +1,107 @@
+package frc.lib.util;
+
+/**
+ * Bounded ring of timestamped gyro yaw and yaw rate samples stored in primitive arrays.
+ * Yaw is continuous (it keeps counting past 360 degrees), so samples interpolate
+ * linearly. Times after the newest sample are extrapolated with its rate for a short
+ * window, then held. Safe to record from one thread and look up from others.
+ */
+public final class YawHistory {
+    private final double[] m_timestamps;
+    private final double[] m_yaws; // degrees, continuous
+    private final double[] m_rates; // degrees per second
+    private final double m_maxExtrapolationSeconds;
+    private int m_head; // oldest sample
+    private int m_size;
+
+    /**
+     * @param capacity The number of samples kept before the oldest is overwritten
+     * @param maxExtrapolationSeconds How far past the newest sample to project its rate
+     */
+    public YawHistory(int capacity, double maxExtrapolationSeconds) {
+        m_timestamps = new double[capacity];
+        m_yaws = new double[capacity];
+        m_rates = new double[capacity];
+        m_maxExtrapolationSeconds = maxExtrapolationSeconds;
+    }
+
+    /**
+     * Records a sample. Samples must be added in time order, older ones are ignored.
+     */
+    public synchronized void add(double timestampSeconds, double yawDegrees, double rateDegreesPerSecond) {
+        if (m_size > 0 && timestampSeconds <= m_timestamps[index(m_size - 1)]) {
+            return;
+        }
+
+        int index;
+        if (m_size == m_timestamps.length) {
+            index = m_head;
+            m_head = (m_head + 1) % m_timestamps.length;
+        } else {
+            index = index(m_size);
+            m_size++;
+        }
+
+        m_timestamps[index] = timestampSeconds;
+        m_yaws[index] = yawDegrees;
+        m_rates[index] = rateDegreesPerSecond;
+    }
+
+    /**
+     * @param timestampSeconds FPGA time to look up
+     * @return The yaw at that time in degrees, interpolated between the samples around it,
+     * extrapolated a short way past the newest and clamped to the oldest, or NaN if the
+     * history is empty
+     */
+    public synchronized double getYawAt(double timestampSeconds) {
+        if (m_size == 0) {
+            return Double.NaN;
+        }
+
+        if (timestampSeconds <= m_timestamps[m_head]) {
+            return m_yaws[m_head];
+        }
+        int newest = index(m_size - 1);
+        if (timestampSeconds >= m_timestamps[newest]) {
+            double ahead = Math.min(timestampSeconds - m_timestamps[newest], m_maxExtrapolationSeconds);
+            return m_yaws[newest] + m_rates[newest] * ahead;
+        }
+
+        // Binary search for the first sample after the timestamp
+        int low = 1;
+        int high = m_size - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (m_timestamps[index(mid)] <= timestampSeconds) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int after = index(low);
+        int before = index(low - 1);
+        double t = (timestampSeconds - m_timestamps[before]) / (m_timestamps[after] - m_timestamps[before]);
+        return m_yaws[before] + (m_yaws[after] - m_yaws[before]) * t;
+    }
+
+    /**
+     * @return FPGA time of the newest sample, or NaN if the history is empty
+     */
+    public synchronized double getLatestTimestamp() {
+        return m_size > 0 ? m_timestamps[index(m_size - 1)] : Double.NaN;
+    }
+
+    public synchronized void clear() {
+        m_head = 0;
+        m_size = 0;
+    }
+
+    public synchronized int size() {
+        return m_size;
+    }
+
+    private int index(int offset) {
+        return (m_head + offset) % m_timestamps.length;
+    }
+}
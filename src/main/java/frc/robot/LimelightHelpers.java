@@ -2,9 +2,14 @@
 
 package frc.robot;
 
+import edu.wpi.first.networktables.DoubleArrayPublisher;
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoublePublisher;
+import edu.wpi.first.networktables.DoubleSubscriber;
 import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.StringSubscriber;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Pose3d;
 import edu.wpi.first.math.geometry.Rotation2d;
@@ -13,19 +18,23 @@ import edu.wpi.first.math.util.Units;
 import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation2d;
 
-import java.io.IOException;
-import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonFormat.Shape;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import frc.robot.classes.LimelightSnapshotQueue;
+
 public class LimelightHelpers {
 
     public static class LimelightTarget_Retro {
@@ -198,6 +207,33 @@ public class LimelightHelpers {
         @JsonProperty("ts")
         public double ts;
 
+        /**
+         * Straight line distance from the camera to the target in meters, without
+         * building a Pose3d
+         */
+        public double getTargetDistance_CameraSpace() {
+            double x = targetPose_CameraSpace[0];
+            double y = targetPose_CameraSpace[1];
+            double z = targetPose_CameraSpace[2];
+            return Math.sqrt(x * x + y * y + z * z);
+        }
+
+        public double getTargetX_RobotSpace() {
+            return targetPose_RobotSpace[0];
+        }
+
+        public double getTargetY_RobotSpace() {
+            return targetPose_RobotSpace[1];
+        }
+
+        public double getRobotX_FieldSpace() {
+            return robotPose_FieldSpace[0];
+        }
+
+        public double getRobotY_FieldSpace() {
+            return robotPose_FieldSpace[1];
+        }
+
         public LimelightTarget_Fiducial() {
             cameraPose_TargetSpace = new double[6];
             robotPose_FieldSpace = new double[6];
@@ -333,9 +369,22 @@ public class LimelightHelpers {
         @JsonProperty("Retro")
         public LimelightTarget_Retro[] targets_Retro;
 
-        @JsonProperty("Fiducial")
+        // Bound to "Fiducial" through the setter below, which also keeps fiducialCount in step
         public LimelightTarget_Fiducial[] targets_Fiducials;
 
+        /**
+         * Number of valid entries in targets_Fiducials. The streaming parser fills a
+         * pre-sized pool, so the array can be longer than the number of targets seen.
+         */
+        @JsonIgnore
+        public int fiducialCount;
+
+        @JsonProperty("Fiducial")
+        private void setTargets_Fiducials(LimelightTarget_Fiducial[] fiducials) {
+            targets_Fiducials = fiducials == null ? new LimelightTarget_Fiducial[0] : fiducials;
+            fiducialCount = targets_Fiducials.length;
+        }
+
         @JsonProperty("Classifier")
         public LimelightTarget_Classifier[] targets_Classifier;
 
@@ -363,11 +412,349 @@ public class LimelightHelpers {
         @JsonProperty("Results")
         public Results targetingResults;
 
+        @JsonIgnore
+        private ResultsStreamParser streamParser;
+
         public LimelightResults() {
             targetingResults = new Results();
         }
     }
 
+    /**
+     * Size of the fiducial pool the streaming parser writes into. Targets beyond this
+     * count are skipped.
+     */
+    static final int STREAMING_FIDUCIAL_POOL_SIZE = 16;
+
+    private static final double[] POW10 = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /**
+     * Single pass, allocation free reader for the Limelight json dump. Only the keys the
+     * robot uses are decoded, everything else is skipped without building any objects.
+     */
+    private static final class ResultsStreamParser {
+        private String json;
+        private int pos;
+        private int keyStart;
+        private int keyLength;
+
+        void parse(String text, Results results) {
+            json = text;
+            pos = 0;
+            reset(results);
+
+            try {
+                expect('{');
+                if (!consume('}')) {
+                    do {
+                        readKey();
+                        if (keyIs("Results")) {
+                            readResults(results);
+                        } else {
+                            skipValue();
+                        }
+                    } while (consume(','));
+                    expect('}');
+                }
+            } finally {
+                json = null;
+            }
+        }
+
+        private void reset(Results results) {
+            results.pipelineID = 0;
+            results.latency_pipeline = 0;
+            results.latency_capture = 0;
+            results.timestamp_LIMELIGHT_publish = 0;
+            results.timestamp_RIOFPGA_capture = 0;
+            results.valid = false;
+            Arrays.fill(results.botpose_wpiblue, 0);
+
+            if (results.targets_Fiducials.length < STREAMING_FIDUCIAL_POOL_SIZE) {
+                results.targets_Fiducials = new LimelightTarget_Fiducial[STREAMING_FIDUCIAL_POOL_SIZE];
+                for (int i = 0; i < STREAMING_FIDUCIAL_POOL_SIZE; i++) {
+                    results.targets_Fiducials[i] = new LimelightTarget_Fiducial();
+                }
+            }
+            results.fiducialCount = 0;
+        }
+
+        private void readResults(Results results) {
+            expect('{');
+            if (consume('}')) {
+                return;
+            }
+            do {
+                readKey();
+                if (keyIs("pID")) {
+                    results.pipelineID = readNumber();
+                } else if (keyIs("tl")) {
+                    results.latency_pipeline = readNumber();
+                } else if (keyIs("cl")) {
+                    results.latency_capture = readNumber();
+                } else if (keyIs("ts")) {
+                    results.timestamp_LIMELIGHT_publish = readNumber();
+                } else if (keyIs("ts_rio")) {
+                    results.timestamp_RIOFPGA_capture = readNumber();
+                } else if (keyIs("v")) {
+                    results.valid = readNumber() != 0.0;
+                } else if (keyIs("botpose_wpiblue")) {
+                    readArray(results.botpose_wpiblue);
+                } else if (keyIs("Fiducial")) {
+                    readFiducials(results);
+                } else {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+
+        private void readFiducials(Results results) {
+            expect('[');
+            if (consume(']')) {
+                return;
+            }
+            do {
+                if (results.fiducialCount < results.targets_Fiducials.length) {
+                    readFiducial(results.targets_Fiducials[results.fiducialCount++]);
+                } else {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect(']');
+        }
+
+        private void readFiducial(LimelightTarget_Fiducial target) {
+            target.fiducialID = -1;
+            target.tx = 0;
+            target.ty = 0;
+            target.ta = 0;
+            target.ts = 0;
+            Arrays.fill(target.targetPose_RobotSpace, 0);
+            Arrays.fill(target.targetPose_CameraSpace, 0);
+            Arrays.fill(target.robotPose_FieldSpace, 0);
+
+            expect('{');
+            if (consume('}')) {
+                return;
+            }
+            do {
+                readKey();
+                if (keyIs("fID")) {
+                    target.fiducialID = readNumber();
+                } else if (keyIs("tx")) {
+                    target.tx = readNumber();
+                } else if (keyIs("ty")) {
+                    target.ty = readNumber();
+                } else if (keyIs("ta")) {
+                    target.ta = readNumber();
+                } else if (keyIs("ts")) {
+                    target.ts = readNumber();
+                } else if (keyIs("t6t_rs")) {
+                    readArray(target.targetPose_RobotSpace);
+                } else if (keyIs("t6t_cs")) {
+                    readArray(target.targetPose_CameraSpace);
+                } else if (keyIs("t6r_fs")) {
+                    readArray(target.robotPose_FieldSpace);
+                } else {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+
+        private void readArray(double[] into) {
+            int count = 0;
+            expect('[');
+            if (!consume(']')) {
+                do {
+                    double value = readNumber();
+                    if (count < into.length) {
+                        into[count++] = value;
+                    }
+                } while (consume(','));
+                expect(']');
+            }
+            while (count < into.length) {
+                into[count++] = 0;
+            }
+        }
+
+        private void readKey() {
+            expect('"');
+            keyStart = pos;
+            skipStringBody();
+            keyLength = pos - keyStart;
+            pos++;
+            expect(':');
+        }
+
+        private boolean keyIs(String name) {
+            return keyLength == name.length() && json.regionMatches(keyStart, name, 0, keyLength);
+        }
+
+        private double readNumber() {
+            skipWhitespace();
+            char c = peek();
+            if (c == 't' || c == 'f' || c == 'n') {
+                skipScalar();
+                return c == 't' ? 1.0 : 0.0;
+            }
+
+            boolean negative = false;
+            if (c == '-' || c == '+') {
+                negative = c == '-';
+                pos++;
+            }
+
+            long mantissa = 0;
+            int digits = 0;
+            int exponent = 0;
+            boolean sawDigit = false;
+            while (isDigit(peek())) {
+                sawDigit = true;
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (json.charAt(pos) - '0');
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    exponent++;
+                }
+                pos++;
+            }
+            if (peek() == '.') {
+                pos++;
+                while (isDigit(peek())) {
+                    sawDigit = true;
+                    if (digits < 18) {
+                        mantissa = mantissa * 10 + (json.charAt(pos) - '0');
+                        if (mantissa != 0) {
+                            digits++;
+                        }
+                        exponent--;
+                    }
+                    pos++;
+                }
+            }
+            if (!sawDigit) {
+                throw malformed();
+            }
+            c = peek();
+            if (c == 'e' || c == 'E') {
+                pos++;
+                boolean negativeExponent = false;
+                c = peek();
+                if (c == '-' || c == '+') {
+                    negativeExponent = c == '-';
+                    pos++;
+                }
+                int explicitExponent = 0;
+                while (isDigit(peek())) {
+                    explicitExponent = explicitExponent * 10 + (json.charAt(pos) - '0');
+                    pos++;
+                }
+                exponent += negativeExponent ? -explicitExponent : explicitExponent;
+            }
+
+            double value = mantissa;
+            if (exponent < 0) {
+                value = -exponent < POW10.length ? value / POW10[-exponent] : value / Math.pow(10, -exponent);
+            } else if (exponent > 0) {
+                value = exponent < POW10.length ? value * POW10[exponent] : value * Math.pow(10, exponent);
+            }
+            return negative ? -value : value;
+        }
+
+        private void skipValue() {
+            skipWhitespace();
+            char c = peek();
+            if (c == '"') {
+                skipString();
+            } else if (c == '{' || c == '[') {
+                int depth = 0;
+                do {
+                    c = peek();
+                    if (c == '"') {
+                        skipString();
+                        continue;
+                    }
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    } else if (c == 0) {
+                        throw malformed();
+                    }
+                    pos++;
+                } while (depth > 0);
+            } else {
+                skipScalar();
+            }
+        }
+
+        private void skipString() {
+            pos++;
+            skipStringBody();
+            pos++;
+        }
+
+        private void skipStringBody() {
+            char c = peek();
+            while (c != '"') {
+                if (c == 0) {
+                    throw malformed();
+                }
+                pos += (c == '\\') ? 2 : 1;
+                c = peek();
+            }
+        }
+
+        private void skipScalar() {
+            char c = peek();
+            while (c != ',' && c != '}' && c != ']' && c != 0 && !Character.isWhitespace(c)) {
+                pos++;
+                c = peek();
+            }
+        }
+
+        private boolean consume(char c) {
+            skipWhitespace();
+            if (peek() == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(char c) {
+            if (!consume(c)) {
+                throw malformed();
+            }
+        }
+
+        private IllegalStateException malformed() {
+            return new IllegalStateException("malformed results at " + pos);
+        }
+
+        private void skipWhitespace() {
+            while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private char peek() {
+            return pos < json.length() ? json.charAt(pos) : 0;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+
     private static ObjectMapper mapper;
 
     /**
@@ -376,7 +763,7 @@ public class LimelightHelpers {
     static boolean profileJSON = false;
 
     static final String sanitizeName(String name) {
-        if (name == "" || name == null) {
+        if (name == null || name.isEmpty()) {
             return "limelight";
         }
         return name;
@@ -405,6 +792,102 @@ public class LimelightHelpers {
         return new Pose2d(tran2d, r2d);
     }
 
+    private static final double[] EMPTY_ARRAY = new double[0];
+
+    /**
+     * Typed NetworkTables handles for every key of one limelight, created once per
+     * limelight name so the getters and setters below are direct handle reads and
+     * writes instead of resolving the table and entry by name on every call.
+     */
+    public static final class LimelightHandle {
+        public final String name;
+
+        public final DoubleSubscriber tv;
+        public final DoubleSubscriber tx;
+        public final DoubleSubscriber ty;
+        public final DoubleSubscriber ta;
+        public final DoubleSubscriber tl;
+        public final DoubleSubscriber cl;
+        public final DoubleSubscriber tid;
+        public final DoubleSubscriber tclass;
+        public final DoubleSubscriber getpipe;
+
+        public final DoubleArraySubscriber botpose;
+        public final DoubleArraySubscriber botpose_wpired;
+        public final DoubleArraySubscriber botpose_wpiblue;
+        public final DoubleArraySubscriber botpose_targetspace;
+        public final DoubleArraySubscriber camerapose_targetspace;
+        public final DoubleArraySubscriber camerapose_robotspace;
+        public final DoubleArraySubscriber targetpose_cameraspace;
+        public final DoubleArraySubscriber targetpose_robotspace;
+        public final DoubleArraySubscriber tc;
+        public final DoubleArraySubscriber llpython;
+
+        public final StringSubscriber json;
+
+        public final DoublePublisher pipeline;
+        public final DoublePublisher ledMode;
+        public final DoublePublisher stream;
+        public final DoublePublisher camMode;
+
+        public final DoubleArrayPublisher crop;
+        public final DoubleArrayPublisher camerapose_robotspace_set;
+        public final DoubleArrayPublisher llrobot;
+
+        private LimelightHandle(String limelightName) {
+            name = limelightName;
+            NetworkTable table = NetworkTableInstance.getDefault().getTable(limelightName);
+
+            tv = table.getDoubleTopic("tv").subscribe(0.0);
+            tx = table.getDoubleTopic("tx").subscribe(0.0);
+            ty = table.getDoubleTopic("ty").subscribe(0.0);
+            ta = table.getDoubleTopic("ta").subscribe(0.0);
+            tl = table.getDoubleTopic("tl").subscribe(0.0);
+            cl = table.getDoubleTopic("cl").subscribe(0.0);
+            tid = table.getDoubleTopic("tid").subscribe(0.0);
+            tclass = table.getDoubleTopic("tclass").subscribe(0.0);
+            getpipe = table.getDoubleTopic("getpipe").subscribe(0.0);
+
+            botpose = table.getDoubleArrayTopic("botpose").subscribe(EMPTY_ARRAY);
+            botpose_wpired = table.getDoubleArrayTopic("botpose_wpired").subscribe(EMPTY_ARRAY);
+            botpose_wpiblue = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(EMPTY_ARRAY);
+            botpose_targetspace = table.getDoubleArrayTopic("botpose_targetspace").subscribe(EMPTY_ARRAY);
+            camerapose_targetspace = table.getDoubleArrayTopic("camerapose_targetspace").subscribe(EMPTY_ARRAY);
+            camerapose_robotspace = table.getDoubleArrayTopic("camerapose_robotspace").subscribe(EMPTY_ARRAY);
+            targetpose_cameraspace = table.getDoubleArrayTopic("targetpose_cameraspace").subscribe(EMPTY_ARRAY);
+            targetpose_robotspace = table.getDoubleArrayTopic("targetpose_robotspace").subscribe(EMPTY_ARRAY);
+            tc = table.getDoubleArrayTopic("tc").subscribe(EMPTY_ARRAY);
+            llpython = table.getDoubleArrayTopic("llpython").subscribe(EMPTY_ARRAY);
+
+            json = table.getStringTopic("json").subscribe("");
+
+            pipeline = table.getDoubleTopic("pipeline").publish();
+            ledMode = table.getDoubleTopic("ledMode").publish();
+            stream = table.getDoubleTopic("stream").publish();
+            camMode = table.getDoubleTopic("camMode").publish();
+
+            crop = table.getDoubleArrayTopic("crop").publish();
+            camerapose_robotspace_set = table.getDoubleArrayTopic("camerapose_robotspace_set").publish();
+            llrobot = table.getDoubleArrayTopic("llrobot").publish();
+        }
+    }
+
+    private static final Map<String, LimelightHandle> handles = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the cached handles for a limelight, creating them on first use. The cache is
+     * keyed on the sanitized name, so every camera and every spelling of the default name
+     * is a lock free lookup after the first call.
+     */
+    public static LimelightHandle getHandle(String limelightName) {
+        String name = sanitizeName(limelightName);
+        LimelightHandle handle = handles.get(name);
+        if (handle == null) {
+            handle = handles.computeIfAbsent(name, LimelightHandle::new);
+        }
+        return handle;
+    }
+
     public static NetworkTable getLimelightNTTable(String tableName) {
         return NetworkTableInstance.getDefault().getTable(sanitizeName(tableName));
     }
@@ -448,31 +931,31 @@ public class LimelightHelpers {
     /////
 
     public static double getTX(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tx");
+        return getHandle(limelightName).tx.get();
     }
 
     public static double getTY(String limelightName) {
-        return getLimelightNTDouble(limelightName, "ty");
+        return getHandle(limelightName).ty.get();
     }
 
     public static double getTA(String limelightName) {
-        return getLimelightNTDouble(limelightName, "ta");
+        return getHandle(limelightName).ta.get();
     }
 
     public static double getLatency_Pipeline(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tl");
+        return getHandle(limelightName).tl.get();
     }
 
     public static double getLatency_Capture(String limelightName) {
-        return getLimelightNTDouble(limelightName, "cl");
+        return getHandle(limelightName).cl.get();
     }
 
     public static double getCurrentPipelineIndex(String limelightName) {
-        return getLimelightNTDouble(limelightName, "getpipe");
+        return getHandle(limelightName).getpipe.get();
     }
 
     public static String getJSONDump(String limelightName) {
-        return getLimelightNTString(limelightName, "json");
+        return getHandle(limelightName).json.get();
     }
 
     /**
@@ -483,7 +966,7 @@ public class LimelightHelpers {
      */
     @Deprecated
     public static double[] getBotpose(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose");
+        return getHandle(limelightName).botpose.get();
     }
 
     /**
@@ -494,7 +977,7 @@ public class LimelightHelpers {
      */
     @Deprecated
     public static double[] getBotpose_wpiRed(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpired");
+        return getHandle(limelightName).botpose_wpired.get();
     }
 
     /**
@@ -505,89 +988,89 @@ public class LimelightHelpers {
      */
     @Deprecated
     public static double[] getBotpose_wpiBlue(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpiblue");
+        return getHandle(limelightName).botpose_wpiblue.get();
     }
 
     public static double[] getBotPose(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose");
+        return getHandle(limelightName).botpose.get();
     }
 
     public static double[] getBotPose_wpiRed(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpired");
+        return getHandle(limelightName).botpose_wpired.get();
     }
 
     public static double[] getBotPose_wpiBlue(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_wpiblue");
+        return getHandle(limelightName).botpose_wpiblue.get();
     }
 
     public static double[] getBotPose_TargetSpace(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "botpose_targetspace");
+        return getHandle(limelightName).botpose_targetspace.get();
     }
 
     public static double[] getCameraPose_TargetSpace(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "camerapose_targetspace");
+        return getHandle(limelightName).camerapose_targetspace.get();
     }
 
     public static double[] getTargetPose_CameraSpace(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "targetpose_cameraspace");
+        return getHandle(limelightName).targetpose_cameraspace.get();
     }
 
     public static double[] getTargetPose_RobotSpace(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "targetpose_robotspace");
+        return getHandle(limelightName).targetpose_robotspace.get();
     }
 
     public static double[] getTargetColor(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "tc");
+        return getHandle(limelightName).tc.get();
     }
 
     public static double getFiducialID(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tid");
+        return getHandle(limelightName).tid.get();
     }
 
     public static double getNeuralClassID(String limelightName) {
-        return getLimelightNTDouble(limelightName, "tclass");
+        return getHandle(limelightName).tclass.get();
     }
 
     /////
     /////
 
     public static Pose3d getBotPose3d(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "botpose");
+        double[] poseArray = getHandle(limelightName).botpose.get();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getBotPose3d_wpiRed(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "botpose_wpired");
+        double[] poseArray = getHandle(limelightName).botpose_wpired.get();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getBotPose3d_wpiBlue(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "botpose_wpiblue");
+        double[] poseArray = getHandle(limelightName).botpose_wpiblue.get();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getBotPose3d_TargetSpace(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "botpose_targetspace");
+        double[] poseArray = getHandle(limelightName).botpose_targetspace.get();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getCameraPose3d_TargetSpace(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "camerapose_targetspace");
+        double[] poseArray = getHandle(limelightName).camerapose_targetspace.get();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getTargetPose3d_CameraSpace(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "targetpose_cameraspace");
+        double[] poseArray = getHandle(limelightName).targetpose_cameraspace.get();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getTargetPose3d_RobotSpace(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "targetpose_robotspace");
+        double[] poseArray = getHandle(limelightName).targetpose_robotspace.get();
         return toPose3D(poseArray);
     }
 
     public static Pose3d getCameraPose3d_RobotSpace(String limelightName) {
-        double[] poseArray = getLimelightNTDoubleArray(limelightName, "camerapose_robotspace");
+        double[] poseArray = getHandle(limelightName).camerapose_robotspace.get();
         return toPose3D(poseArray);
     }
 
@@ -633,14 +1116,14 @@ public class LimelightHelpers {
     }
 
     public static boolean getTV(String limelightName) {
-        return 1.0 == getLimelightNTDouble(limelightName, "tv");
+        return 1.0 == getHandle(limelightName).tv.get();
     }
 
     /////
     /////
 
     public static void setPipelineIndex(String limelightName, int pipelineIndex) {
-        setLimelightNTDouble(limelightName, "pipeline", pipelineIndex);
+        getHandle(limelightName).pipeline.set(pipelineIndex);
     }
 
     /**
@@ -648,38 +1131,38 @@ public class LimelightHelpers {
      * code.
      */
     public static void setLEDMode_PipelineControl(String limelightName) {
-        setLimelightNTDouble(limelightName, "ledMode", 0);
+        getHandle(limelightName).ledMode.set(0);
     }
 
     public static void setLEDMode_ForceOff(String limelightName) {
-        setLimelightNTDouble(limelightName, "ledMode", 1);
+        getHandle(limelightName).ledMode.set(1);
     }
 
     public static void setLEDMode_ForceBlink(String limelightName) {
-        setLimelightNTDouble(limelightName, "ledMode", 2);
+        getHandle(limelightName).ledMode.set(2);
     }
 
     public static void setLEDMode_ForceOn(String limelightName) {
-        setLimelightNTDouble(limelightName, "ledMode", 3);
+        getHandle(limelightName).ledMode.set(3);
     }
 
     public static void setStreamMode_Standard(String limelightName) {
-        setLimelightNTDouble(limelightName, "stream", 0);
+        getHandle(limelightName).stream.set(0);
     }
 
     public static void setStreamMode_PiPMain(String limelightName) {
-        setLimelightNTDouble(limelightName, "stream", 1);
+        getHandle(limelightName).stream.set(1);
     }
 
     public static void setStreamMode_PiPSecondary(String limelightName) {
-        setLimelightNTDouble(limelightName, "stream", 2);
+        getHandle(limelightName).stream.set(2);
     }
 
     public static void setCameraMode_Processor(String limelightName) {
-        setLimelightNTDouble(limelightName, "camMode", 0);
+        getHandle(limelightName).camMode.set(0);
     }
     public static void setCameraMode_Driver(String limelightName) {
-        setLimelightNTDouble(limelightName, "camMode", 1);
+        getHandle(limelightName).camMode.set(1);
     }
 
 
@@ -693,7 +1176,7 @@ public class LimelightHelpers {
         entries[1] = cropXMax;
         entries[2] = cropYMin;
         entries[3] = cropYMax;
-        setLimelightNTDoubleArray(limelightName, "crop", entries);
+        getHandle(limelightName).crop.set(entries);
     }
 
     public static void setCameraPose_RobotSpace(String limelightName, double forward, double side, double up, double roll, double pitch, double yaw) {
@@ -704,51 +1187,45 @@ public class LimelightHelpers {
         entries[3] = roll;
         entries[4] = pitch;
         entries[5] = yaw;
-        setLimelightNTDoubleArray(limelightName, "camerapose_robotspace_set", entries);
+        getHandle(limelightName).camerapose_robotspace_set.set(entries);
     }
 
     /////
     /////
 
     public static void setPythonScriptData(String limelightName, double[] outgoingPythonData) {
-        setLimelightNTDoubleArray(limelightName, "llrobot", outgoingPythonData);
+        getHandle(limelightName).llrobot.set(outgoingPythonData);
     }
 
     public static double[] getPythonScriptData(String limelightName) {
-        return getLimelightNTDoubleArray(limelightName, "llpython");
+        return getHandle(limelightName).llpython.get();
     }
 
     /////
     /////
 
+    private static volatile LimelightSnapshotQueue snapshotQueue = new LimelightSnapshotQueue();
+
     /**
-     * Asynchronously take snapshot.
+     * Asynchronously take snapshot. Requests go through a bounded queue with its own
+     * thread and timeouts, see {@link LimelightSnapshotQueue}.
      */
     public static CompletableFuture<Boolean> takeSnapshot(String tableName, String snapshotName) {
-        return CompletableFuture.supplyAsync(() -> {
-            return SYNCH_TAKESNAPSHOT(tableName, snapshotName);
-        });
+        return snapshotQueue.takeSnapshot(sanitizeName(tableName), snapshotName);
     }
 
-    private static boolean SYNCH_TAKESNAPSHOT(String tableName, String snapshotName) {
-        URL url = getLimelightURLString(tableName, "capturesnapshot");
-        try {
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("GET");
-            if (snapshotName != null && snapshotName != "") {
-                connection.setRequestProperty("snapname", snapshotName);
-            }
+    public static LimelightSnapshotQueue getSnapshotQueue() {
+        return snapshotQueue;
+    }
 
-            int responseCode = connection.getResponseCode();
-            if (responseCode == 200) {
-                return true;
-            } else {
-                System.err.println("Bad LL Request");
-            }
-        } catch (IOException e) {
-            System.err.println(e.getMessage());
-        }
-        return false;
+    /**
+     * Replaces the queue snapshot requests go through and closes the old one. Requests
+     * already waiting on the old queue complete with false.
+     */
+    public static synchronized void setSnapshotQueue(LimelightSnapshotQueue queue) {
+        LimelightSnapshotQueue previous = snapshotQueue;
+        snapshotQueue = queue;
+        previous.close();
     }
 
     /**
@@ -777,4 +1254,46 @@ public class LimelightHelpers {
 
         return results;
     }
+
+    /**
+     * Streaming alternative to getLatestResults. Fills the given LimelightResults in
+     * place instead of building a new object graph, reading only pID, tl, cl, ts,
+     * ts_rio, v, botpose_wpiblue and each fiducial's fID, tx, ty, ta, ts, t6t_rs,
+     * t6t_cs and t6r_fs.
+     * Fiducials are written into a pool owned by the results, so iterate up to
+     * Results.fiducialCount rather than targets_Fiducials.length.
+     */
+    public static LimelightResults getLatestResults(String limelightName, LimelightResults results) {
+        return parseLatestResults(getJSONDump(limelightName), results);
+    }
+
+    /**
+     * Streams an already fetched json dump into the given LimelightResults, see
+     * {@link #getLatestResults(String, LimelightResults)}.
+     */
+    public static LimelightResults parseLatestResults(String json, LimelightResults results) {
+        long start = System.nanoTime();
+        if (results.streamParser == null) {
+            results.streamParser = new ResultsStreamParser();
+        }
+
+        try {
+            results.streamParser.parse(json, results.targetingResults);
+        } catch (IllegalStateException e) {
+            results.targetingResults.valid = false;
+            results.targetingResults.fiducialCount = 0;
+            if (profileJSON) {
+                System.err.println("lljson error: " + e.getMessage());
+            }
+        }
+
+        long end = System.nanoTime();
+        double millis = (end - start) * .000001;
+        results.targetingResults.latency_jsonParse = millis;
+        if (profileJSON) {
+            System.out.printf("lljson (streaming): %.2f\r\n", millis);
+        }
+
+        return results;
+    }
 }
\ No newline at end of file
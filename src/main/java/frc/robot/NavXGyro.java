@@ -0,0 +1,127 @@
+package frc.robot;
+
+import com.kauailabs.navx.frc.AHRS;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.util.YawHistory;
+
+/**
+ * Timestamps every NavX yaw sample so the drivetrain can ask for the yaw at any recent
+ * time instead of whatever the last serial frame happened to say.
+ *
+ * The NavX sends frames at its own rate, slower than the odometry thread polls it, so a
+ * poll usually returns a frame that is already a few milliseconds old. sample() records
+ * a frame once, at the time it was first seen, with its yaw rate; getYawAt() then
+ * interpolates between frames and projects the newest one forward by its rate, so the
+ * yaw fused with a wheel sample is the yaw at that sample's time.
+ *
+ * A NavX that reports disconnected, or whose frames stop advancing, is stale. Stale yaw
+ * is held rather than extrapolated.
+ */
+public class NavXGyro {
+    /** No new frame for this long means the NavX stopped updating */
+    private static final double STALE_SECONDS = 0.1;
+    /** Furthest past the newest frame its rate is projected */
+    private static final double MAX_EXTRAPOLATION_SECONDS = 0.04;
+
+    private final AHRS m_ahrs;
+    private final YawHistory m_history;
+
+    /* Owned by the sampling thread */
+    private long m_lastSensorTimestamp = -1;
+    private double m_lastFrameTime = Double.NaN;
+    private int m_framesToSkip;
+
+    private volatile Rotation2d m_yaw = new Rotation2d();
+    private volatile boolean m_stale = true;
+    private volatile long m_staleEvents;
+
+    /**
+     * @param ahrs The NavX
+     * @param historySize The number of frames kept for lookups
+     */
+    public NavXGyro(AHRS ahrs, int historySize) {
+        m_ahrs = ahrs;
+        m_history = new YawHistory(historySize, MAX_EXTRAPOLATION_SECONDS);
+    }
+
+    /**
+     * Polls the NavX and records its frame if it is new. Call from one thread, faster than
+     * the NavX update rate.
+     * @param nowSeconds FPGA time of the poll
+     */
+    public synchronized void sample(double nowSeconds) {
+        long sensorTimestamp = m_ahrs.getLastSensorTimestamp();
+        if (sensorTimestamp != m_lastSensorTimestamp) {
+            m_lastSensorTimestamp = sensorTimestamp;
+            m_lastFrameTime = nowSeconds;
+            if (m_framesToSkip > 0) {
+                m_framesToSkip--;
+            } else {
+                record(nowSeconds, m_ahrs.getAngle());
+            }
+        }
+
+        boolean stale = !m_ahrs.isConnected() || !(nowSeconds - m_lastFrameTime < STALE_SECONDS);
+        if (stale && !m_stale) {
+            m_staleEvents++;
+        }
+        m_stale = stale;
+    }
+
+    /**
+     * Zeroes the yaw. Frames from before the zero no longer line up, so they are dropped.
+     * The NavX applies the zero asynchronously, so getAngle() can still return the old yaw
+     * for a frame; zero is recorded directly and the next frame is skipped.
+     * @param nowSeconds FPGA time of the zero
+     */
+    public synchronized void zeroYaw(double nowSeconds) {
+        m_ahrs.zeroYaw();
+        m_history.clear();
+        m_lastSensorTimestamp = m_ahrs.getLastSensorTimestamp();
+        m_framesToSkip = 1;
+        record(nowSeconds, 0.0);
+    }
+
+    private void record(double nowSeconds, double yaw) {
+        m_history.add(nowSeconds, yaw, m_stale ? 0.0 : m_ahrs.getRate());
+        m_yaw = Rotation2d.fromDegrees(yaw);
+    }
+
+    /**
+     * @param timestampSeconds FPGA time to look up
+     * @return The yaw at that time in degrees, continuous like AHRS.getAngle()
+     */
+    public double getYawAt(double timestampSeconds) {
+        double yaw = m_history.getYawAt(timestampSeconds);
+        return Double.isNaN(yaw) ? m_yaw.getDegrees() : yaw;
+    }
+
+    /**
+     * @return The yaw of the newest frame. The same object is returned until a new frame arrives.
+     */
+    public Rotation2d getYaw() {
+        return m_yaw;
+    }
+
+    /**
+     * @return True if the NavX is disconnected or has not sent a frame recently
+     */
+    public boolean isStale() {
+        return m_stale;
+    }
+
+    /**
+     * @return How many times the NavX has gone stale
+     */
+    public long getStaleEvents() {
+        return m_staleEvents;
+    }
+
+    public void updateDashboard() {
+        SmartDashboard.putBoolean("Gyro Stale", m_stale);
+        SmartDashboard.putNumber("Gyro Stale Events", m_staleEvents);
+        SmartDashboard.putNumber("Gyro Update Rate", m_ahrs.getActualUpdateRate());
+    }
+}
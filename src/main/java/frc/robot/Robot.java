@@ -30,6 +30,8 @@ import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
 import edu.wpi.first.wpilibj.PowerDistribution;
 import edu.wpi.first.wpilibj.PowerDistribution.ModuleType;
+import frc.robot.classes.AutoRoutes;
+import frc.robot.classes.FieldLayout;
 
 /**
  * The VM is configured to automatically run this class, and to call the
@@ -53,7 +55,13 @@ public class Robot extends LoggedRobot {
     @SuppressWarnings("resource") // It's only instantiated once, it's fine
     public void robotInit() {
         ctreConfigs = new CTREConfigs();
-        
+
+        // Load the AprilTag layout now rather than on the first vision lookup
+        FieldLayout.getInstance();
+
+        // Map every compiled auto trajectory now so autonomousInit only looks one up
+        AutoRoutes.load();
+
         m_robotContainer = RobotContainer.getInstance();
     }
 
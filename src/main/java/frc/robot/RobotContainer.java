@@ -4,10 +4,13 @@
 package frc.robot;
 
 import frc.robot.classes.SpikeController;
+import frc.robot.commands.CalibrateModules;
+import frc.robot.commands.DriveToTag;
 import frc.robot.commands.OrientedDrive;
 import frc.robot.commands.SequentialAutoCommand;
 import frc.robot.commands.SequentialAutoCommand.StartPositions;
 import frc.robot.subsystems.Drivetrain;
+import frc.robot.subsystems.LimelightInterface;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 
@@ -15,6 +18,7 @@ import edu.wpi.first.wpilibj.XboxController;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.button.JoystickButton;
 
 /**
  * This class is where the bulk of the robot should be declared. Since
@@ -30,6 +34,7 @@ public class RobotContainer {
     // Robots Subsystems
     private static RobotContainer m_robotContainer = new RobotContainer();
     public final Drivetrain m_drivetrain = new Drivetrain();
+    public final LimelightInterface m_limelight = new LimelightInterface(m_drivetrain);
 
     // Create two new controllers with the SpikeController class, which handles deadband and stick direction automatically
     public static final double DEADBAND = 0.05d;
@@ -63,6 +68,12 @@ public class RobotContainer {
      * {@link edu.wpi.first.wpilibj2.command.button.JoystickButton}.
      */
     private void configureButtonBindings() {
+        /******** Driver Controls ********/
+        // Hold A to drive to the scoring pose in front of the tag in view
+        final JoystickButton xboxDriveToTagBtn = new JoystickButton(m_driverController.getXboxController(),
+            XboxController.Button.kA.value);
+        xboxDriveToTagBtn.whileTrue(new DriveToTag(m_drivetrain, m_limelight));
+
         /******** Operator Controls ********/
         // final JoystickButton xboxCalibrateExtenderBtn = new JoystickButton(m_operatorXboxController,
         //     XboxController.Button.kRightBumper.value);
@@ -77,6 +88,13 @@ public class RobotContainer {
         m_autoChooser.setDefaultOption("Don't Move", SequentialAutoCommand.StartPositions.DONT_MOVE);
         m_autoChooser.addOption("Drive Backward", SequentialAutoCommand.StartPositions.DRIVE_BACKWARD);
         m_autoChooser.addOption("Left Side Score", SequentialAutoCommand.StartPositions.LEFT_SIDE_SCORE);
+        m_autoChooser.addOption("Right Side Score", SequentialAutoCommand.StartPositions.RIGHT_SIDE_SCORE);
+        m_autoChooser.addOption("Center Engage", SequentialAutoCommand.StartPositions.CENTER_ENGAGE);
+        m_autoChooser.addOption("Score And Engage", SequentialAutoCommand.StartPositions.SCORE_AND_ENGAGE);
+        SmartDashboard.putData("Auto Chooser", m_autoChooser);
+
+        // Re-zero the swerve modules from the dashboard, wheels pointed forward and robot disabled
+        SmartDashboard.putData("Calibrate Modules", new CalibrateModules(m_drivetrain));
     }
 
     private Command getDriveCommand() {
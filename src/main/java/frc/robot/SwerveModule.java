@@ -7,17 +7,25 @@ import edu.wpi.first.math.kinematics.SwerveModuleState;
 
 import frc.lib.util.CTREModuleState;
 import frc.lib.util.Conversions;
+import frc.lib.util.DeviceConfigurator;
 import frc.lib.util.SwerveConstants;
 import frc.lib.util.SwerveModuleConstants;
 
+import com.ctre.phoenix.ErrorCode;
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.can.TalonFX;
 import com.ctre.phoenix.sensors.CANCoder;
 
+import edu.wpi.first.wpilibj.Timer;
+
 public class SwerveModule {
 
+    /** Angle motor position error after seeding from the CANCoder that counts as seeded, in degrees */
+    private static final double SEED_TOLERANCE_DEGREES = 1.0;
+    private static final double SEED_POLL_SECONDS = 0.005;
+
     public final int m_moduleNumber;
     private Rotation2d m_angleOffset;
     private Rotation2d m_lastAngle;
@@ -25,26 +33,51 @@ public class SwerveModule {
     private final TalonFX m_angleMotor;
     private final TalonFX m_driveMotor;
     private final CANCoder m_angleEncoder;
+    private final SwerveSignals m_signals;
+
+    // Filled in place by sample(), so reading the module allocates nothing
+    private final SwerveModuleState m_state = new SwerveModuleState();
+    private final SwerveModulePosition m_position = new SwerveModulePosition();
+    private double m_sampledAngleCounts = Double.NaN;
   
     SimpleMotorFeedforward feedforward = new SimpleMotorFeedforward(SwerveConstants.Swerve.driveKS, SwerveConstants.Swerve.driveKV, SwerveConstants.Swerve.driveKA);
 
-    public SwerveModule(int moduleNumber, SwerveModuleConstants moduleConstants) {
+    public SwerveModule(int moduleNumber, SwerveModuleConstants moduleConstants, SwerveSignals signals) {
         m_moduleNumber = moduleNumber;
         m_angleOffset  = moduleConstants.angleOffset;
+        m_signals = signals;
 
-        // Angle encoder config
+        // Devices are only created here, Drivetrain configures every module's devices at once
         m_angleEncoder = new CANCoder(moduleConstants.cancoderID);
-        configAngleEncoder();
-
-        // Angle motor config
         m_angleMotor = new TalonFX(moduleConstants.angleMotorID);
-        configAngleMotor();
-
-        // Drive motor config
         m_driveMotor = new TalonFX(moduleConstants.driveMotorID);
-        configDriveMotor();
+    }
 
-        m_lastAngle = getState().angle;
+    /**
+     * Adds configuring this module's three devices to a startup batch.
+     */
+    public void addConfigSteps(DeviceConfigurator configurator) {
+        configurator.add("Mod " + m_moduleNumber + " CANCoder", this::configAngleEncoder);
+        configurator.add("Mod " + m_moduleNumber + " Angle Motor", this::configAngleMotor);
+        configurator.add("Mod " + m_moduleNumber + " Drive Motor", this::configDriveMotor);
+    }
+
+    /**
+     * Adds seeding the angle motor from the CANCoder to a startup batch. Run after the
+     * devices are configured.
+     */
+    public void addSeedStep(DeviceConfigurator configurator, double timeoutSeconds) {
+        configurator.add("Mod " + m_moduleNumber + " Seed", () -> seedFromAbsolute(timeoutSeconds));
+    }
+
+    /**
+     * Starts reading the module through the shared signals. Run once startup configuration
+     * is done.
+     */
+    public void finishInit() {
+        m_signals.register(m_moduleNumber, m_driveMotor, m_angleMotor, m_angleEncoder);
+        sample();
+        m_lastAngle = m_state.angle;
     }
 
     public void setNeutralMode(NeutralMode neutralMode) {
@@ -58,13 +91,20 @@ public class SwerveModule {
     }
 
     public void setDesiredState(SwerveModuleState desiredState, boolean isOpenLoop) {
+        setDesiredState(desiredState, isOpenLoop, 0.0);
+    }
+
+    /**
+     * @param steerRate How fast the module angle is changing, in radians per second, fed forward to the angle motor
+     */
+    public void setDesiredState(SwerveModuleState desiredState, boolean isOpenLoop, double steerRate) {
         if (desiredState.speedMetersPerSecond < 0.2) {
             stop();
             return;
         }
         
-        desiredState = CTREModuleState.optimize(desiredState, getState().angle);
-        setAngle(desiredState);
+        desiredState = CTREModuleState.optimize(desiredState, m_state.angle);
+        setAngle(desiredState, steerRate);
         setSpeed(desiredState, isOpenLoop);
     }
 
@@ -78,58 +118,145 @@ public class SwerveModule {
         }
     }
 
-    private void setAngle(SwerveModuleState desiredState) {
-        Rotation2d angle = (Math.abs(desiredState.speedMetersPerSecond) <= (SwerveConstants.Swerve.maxSpeed * 0.01)) ? m_lastAngle : desiredState.angle; // Prevent rotating module if speed is less than 1%. Prevents jittering
+    private void setAngle(SwerveModuleState desiredState, double steerRate) {
+        boolean holdAngle = Math.abs(desiredState.speedMetersPerSecond) <= (SwerveConstants.Swerve.maxSpeed * 0.01); // Prevent rotating module if speed is less than 1%. Prevents jittering
+        Rotation2d angle = holdAngle ? m_lastAngle : desiredState.angle;
+        double feedforward = holdAngle ? 0.0 : steerRate * SwerveConstants.Swerve.angleKV;
 
-        m_angleMotor.set(ControlMode.Position, Conversions.degreesToFalcon(angle.getDegrees(), SwerveConstants.Swerve.angleGearRatio));
+        m_angleMotor.set(ControlMode.Position, Conversions.degreesToFalcon(angle.getDegrees(), SwerveConstants.Swerve.angleGearRatio), DemandType.ArbitraryFeedForward, feedforward);
         m_lastAngle = angle;
     }
 
+    /**
+     * Changes the CANCoder reading that means the module points forward. Call
+     * resetToAbsolute afterwards to re-seed the angle motor with it.
+     */
+    public void setAngleOffset(Rotation2d angleOffset) {
+        m_angleOffset = angleOffset;
+    }
+
+    public Rotation2d getAngleOffset() {
+        return m_angleOffset;
+    }
+
     public Rotation2d getCanCoder(){
         return Rotation2d.fromDegrees(m_angleEncoder.getAbsolutePosition());
     }
 
+    /**
+     * The module angle a CANCoder reading means, wrapped to (-180, 180] degrees. Every path
+     * that seeds the angle motor goes through this so they agree to the count.
+     */
+    private Rotation2d toModuleAngle(double canCoderDegrees) {
+        return Rotation2d.fromDegrees(canCoderDegrees).minus(m_angleOffset);
+    }
+
     public void resetToAbsolute() {
-        double absolutePosition = Conversions.degreesToFalcon(getCanCoder().getDegrees() - m_angleOffset.getDegrees(), SwerveConstants.Swerve.angleGearRatio);
+        Rotation2d angle = toModuleAngle(m_angleEncoder.getAbsolutePosition());
+        double absolutePosition = Conversions.degreesToFalcon(angle.getDegrees(), SwerveConstants.Swerve.angleGearRatio);
         m_angleMotor.setSelectedSensorPosition(absolutePosition);
+        m_lastAngle = angle; // hold the re-seeded angle, not one measured against the old offset
+    }
+
+    /**
+     * Waits for the CANCoder to report, seeds the angle motor from it and polls until the
+     * motor reports the seeded position, instead of sleeping a fixed time and hoping both
+     * devices were ready.
+     * @return OK once seeded, or the error that kept it from seeding in time
+     */
+    private ErrorCode seedFromAbsolute(double timeoutSeconds) {
+        double deadline = Timer.getFPGATimestamp() + timeoutSeconds;
+        ErrorCode error = ErrorCode.SigNotUpdated;
+        while (Timer.getFPGATimestamp() < deadline) {
+            double absoluteDegrees = m_angleEncoder.getAbsolutePosition();
+            error = m_angleEncoder.getLastError();
+            if (error == ErrorCode.OK) {
+                double targetDegrees = toModuleAngle(absoluteDegrees).getDegrees();
+                error = m_angleMotor.setSelectedSensorPosition(
+                    Conversions.degreesToFalcon(targetDegrees, SwerveConstants.Swerve.angleGearRatio), 0, DeviceConfigurator.CONFIG_TIMEOUT_MS);
+
+                // The set is acknowledged before the motor's feedback frame reflects it
+                if (error == ErrorCode.OK) {
+                    Timer.delay(2 * SEED_POLL_SECONDS);
+                    double seededDegrees = Conversions.falconToDegrees(m_angleMotor.getSelectedSensorPosition(), SwerveConstants.Swerve.angleGearRatio);
+                    if (Math.abs(seededDegrees - targetDegrees) <= SEED_TOLERANCE_DEGREES) {
+                        return ErrorCode.OK;
+                    }
+                    error = ErrorCode.SigNotUpdated;
+                }
+            }
+            Timer.delay(SEED_POLL_SECONDS);
+        }
+        return error;
+    }
+
+    /**
+     * Converts the module's signals from the latest SwerveSignals refresh into its state and
+     * position. Call once per loop after the refresh; getState and getPosition return what
+     * was converted here.
+     */
+    public void sample() {
+        double angleCounts = m_signals.getAnglePosition(m_moduleNumber);
+        if (angleCounts != m_sampledAngleCounts) {
+            // Only build a new rotation when the module actually turned
+            m_sampledAngleCounts = angleCounts;
+            Rotation2d angle = Rotation2d.fromDegrees(Conversions.falconToDegrees(angleCounts, SwerveConstants.Swerve.angleGearRatio));
+            m_state.angle = angle;
+            m_position.angle = angle;
+        }
+
+        m_state.speedMetersPerSecond = Conversions.falconToMPS(m_signals.getDriveVelocity(m_moduleNumber), SwerveConstants.Swerve.wheelCircumference, SwerveConstants.Swerve.driveGearRatio);
+        m_position.distanceMeters = Conversions.falconToMeters(m_signals.getDrivePosition(m_moduleNumber), SwerveConstants.Swerve.wheelCircumference, SwerveConstants.Swerve.driveGearRatio);
     }
 
+    /**
+     * @return The state from the last sample(), updated in place by the next one
+     */
     public SwerveModuleState getState() {
-        return new SwerveModuleState(
-            Conversions.falconToMPS(m_driveMotor.getSelectedSensorVelocity(), SwerveConstants.Swerve.wheelCircumference, SwerveConstants.Swerve.driveGearRatio),
-            getAngle()
-        );
+        return m_state;
     }
 
+    /**
+     * @return The angle from the last sample()
+     */
     public Rotation2d getAngle() {
-        return Rotation2d.fromDegrees(Conversions.falconToDegrees(m_angleMotor.getSelectedSensorPosition(), SwerveConstants.Swerve.angleGearRatio));
+        return m_state.angle;
     }
     
+    /**
+     * @return The position from the last sample(), updated in place by the next one
+     */
     public SwerveModulePosition getPosition() {
-        return new SwerveModulePosition(
-            Conversions.falconToMeters(m_driveMotor.getSelectedSensorPosition(), SwerveConstants.Swerve.wheelCircumference, SwerveConstants.Swerve.driveGearRatio),
-            getAngle()
-        );
+        return m_position;
     }
 
-    public void configAngleEncoder() {
-        m_angleEncoder.configFactoryDefault();
-        m_angleEncoder.configAllSettings(Robot.ctreConfigs.swerveCanCoderConfig);
+    public ErrorCode configAngleEncoder() {
+        int timeout = DeviceConfigurator.CONFIG_TIMEOUT_MS;
+        return DeviceConfigurator.firstError(
+            m_angleEncoder.configFactoryDefault(timeout),
+            m_angleEncoder.configAllSettings(Robot.ctreConfigs.swerveCanCoderConfig, timeout),
+            SwerveSignals.configureStatusFrames(m_angleEncoder));
     }
         
-    public void configAngleMotor() {
-        m_angleMotor.configFactoryDefault();
-        m_angleMotor.configAllSettings(Robot.ctreConfigs.swerveAngleFXConfig);
+    public ErrorCode configAngleMotor() {
+        int timeout = DeviceConfigurator.CONFIG_TIMEOUT_MS;
+        ErrorCode error = DeviceConfigurator.firstError(
+            m_angleMotor.configFactoryDefault(timeout),
+            m_angleMotor.configAllSettings(Robot.ctreConfigs.swerveAngleFXConfig, timeout),
+            SwerveSignals.configureStatusFrames(m_angleMotor));
         m_angleMotor.setInverted(SwerveConstants.Swerve.angleMotorInvert);
         m_angleMotor.setNeutralMode(SwerveConstants.Swerve.angleNeutralMode);
-        resetToAbsolute();
+        return error;
     }
 
-    public void configDriveMotor() {
-        m_driveMotor.configFactoryDefault();
-        m_driveMotor.configAllSettings(Robot.ctreConfigs.swerveDriveFXConfig);
+    public ErrorCode configDriveMotor() {
+        int timeout = DeviceConfigurator.CONFIG_TIMEOUT_MS;
+        ErrorCode error = DeviceConfigurator.firstError(
+            m_driveMotor.configFactoryDefault(timeout),
+            m_driveMotor.configAllSettings(Robot.ctreConfigs.swerveDriveFXConfig, timeout),
+            SwerveSignals.configureStatusFrames(m_driveMotor));
         m_driveMotor.setInverted(SwerveConstants.Swerve.driveMotorInvert);
         m_driveMotor.setNeutralMode(SwerveConstants.Swerve.driveNeutralMode);
-        m_driveMotor.setSelectedSensorPosition(0);
+        return DeviceConfigurator.firstError(error, m_driveMotor.setSelectedSensorPosition(0, 0, timeout));
     }
 }
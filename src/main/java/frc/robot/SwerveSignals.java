@@ -0,0 +1,266 @@
+package frc.robot;
+
+import com.ctre.phoenix.ErrorCode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.TalonFX;
+import com.ctre.phoenix.sensors.CANCoder;
+import com.ctre.phoenix.sensors.CANCoderStatusFrame;
+
+import edu.wpi.first.hal.can.CANStatus;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.util.DeviceConfigurator;
+import frc.lib.util.SwerveConstants;
+
+/**
+ * Owns the CAN signals of every swerve device. It schedules each device's status frames
+ * so the signals the drivetrain uses arrive quickly and the rest barely use the bus,
+ * and it reads every drive motor, angle motor and CANCoder in one pass per loop so all
+ * modules see values from the same moment.
+ *
+ * Phoenix 5 getters return the last received frame without waiting, so a refresh is
+ * cheap; a frame that stopped arriving shows up as an error on the getter, which is
+ * counted as a stale signal.
+ *
+ * The main loop owns refresh() and the values it publishes. The odometry thread only
+ * calls readOdometry(), which fills the caller's arrays and keeps its own stale count.
+ * Nothing else reads the devices. Phoenix 5 keeps one last error per device, shared by
+ * every thread, so each getter and the getLastError() check after it run under one lock.
+ */
+public class SwerveSignals {
+    private final TalonFX[] m_driveMotors;
+    private final TalonFX[] m_angleMotors;
+    private final CANCoder[] m_angleEncoders;
+
+    // Raw sensor units from the latest refresh
+    private final double[] m_drivePosition;
+    private final double[] m_driveVelocity;
+    private final double[] m_anglePosition;
+    private final double[] m_absoluteAngle; // degrees
+    private final boolean[] m_stale;
+    private double m_timestamp;
+
+    private long m_staleReads;
+    private long m_frameResets;
+
+    // Held around every device read, see the class comment
+    private final Object m_deviceLock = new Object();
+    private volatile long m_odometryStaleReads; // written only by the odometry thread
+
+    private final String[] m_staleKeys;
+
+    public SwerveSignals(int moduleCount) {
+        m_driveMotors = new TalonFX[moduleCount];
+        m_angleMotors = new TalonFX[moduleCount];
+        m_angleEncoders = new CANCoder[moduleCount];
+        m_drivePosition = new double[moduleCount];
+        m_driveVelocity = new double[moduleCount];
+        m_anglePosition = new double[moduleCount];
+        m_absoluteAngle = new double[moduleCount];
+        m_stale = new boolean[moduleCount];
+
+        m_staleKeys = new String[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            m_staleKeys[i] = "Mod " + i + " Stale";
+        }
+    }
+
+    /**
+     * Adds a module's devices so refresh() reads them. Their status frames are set as part of
+     * configuring each device, see configureStatusFrames.
+     */
+    public void register(int moduleNumber, TalonFX driveMotor, TalonFX angleMotor, CANCoder angleEncoder) {
+        m_driveMotors[moduleNumber] = driveMotor;
+        m_angleMotors[moduleNumber] = angleMotor;
+        m_angleEncoders[moduleNumber] = angleEncoder;
+        refresh(moduleNumber);
+    }
+
+    /**
+     * Sets a swerve motor's status frame periods, waiting for each to be confirmed. Call
+     * after configFactoryDefault, which resets them.
+     * @return The first error, or OK
+     */
+    public static ErrorCode configureStatusFrames(TalonFX motor) {
+        return configureStatusFrames(motor, SwerveConstants.Swerve.statusFrameTimeout);
+    }
+
+    /**
+     * @param timeout Milliseconds to wait for each frame period to be confirmed, 0 to send
+     * them without waiting
+     * @return The first error, or OK
+     */
+    public static ErrorCode configureStatusFrames(TalonFX motor, int timeout) {
+        int unused = SwerveConstants.Swerve.unusedStatusPeriod;
+
+        return DeviceConfigurator.firstError(
+            // Selected sensor position and velocity
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, SwerveConstants.Swerve.feedbackStatusPeriod, timeout),
+            // Applied output and faults
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_1_General, SwerveConstants.Swerve.generalStatusPeriod, timeout),
+
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_3_Quadrature, unused, timeout),
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_4_AinTempVbat, unused, timeout),
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_8_PulseWidth, unused, timeout),
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_10_Targets, unused, timeout),
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_12_Feedback1, unused, timeout),
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_13_Base_PIDF0, unused, timeout),
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_14_Turn_PIDF1, unused, timeout),
+            motor.setStatusFramePeriod(StatusFrameEnhanced.Status_Brushless_Current, unused, timeout));
+    }
+
+    /**
+     * Sets a swerve CANCoder's status frame periods, waiting for each to be confirmed.
+     * Call after configFactoryDefault.
+     * @return The first error, or OK
+     */
+    public static ErrorCode configureStatusFrames(CANCoder encoder) {
+        return configureStatusFrames(encoder, SwerveConstants.Swerve.statusFrameTimeout);
+    }
+
+    /**
+     * @param timeout Milliseconds to wait for each frame period to be confirmed, 0 to send
+     * them without waiting
+     * @return The first error, or OK
+     */
+    public static ErrorCode configureStatusFrames(CANCoder encoder, int timeout) {
+        return DeviceConfigurator.firstError(
+            encoder.setStatusFramePeriod(CANCoderStatusFrame.SensorData, SwerveConstants.Swerve.canCoderSensorDataPeriod, timeout),
+            encoder.setStatusFramePeriod(CANCoderStatusFrame.VbatAndFaults, SwerveConstants.Swerve.unusedStatusPeriod, timeout));
+    }
+
+    /**
+     * Reads every registered device once and timestamps the result. Call once per loop
+     * before anything reads the signals.
+     */
+    public void refresh() {
+        m_timestamp = Timer.getFPGATimestamp();
+        for (int i = 0; i < m_driveMotors.length; i++) {
+            if (m_driveMotors[i] != null) {
+                refresh(i);
+            }
+        }
+    }
+
+    private void refresh(int module) {
+        synchronized (m_deviceLock) {
+            refreshLocked(module);
+        }
+    }
+
+    private void refreshLocked(int module) {
+        TalonFX drive = m_driveMotors[module];
+        TalonFX angle = m_angleMotors[module];
+        CANCoder encoder = m_angleEncoders[module];
+
+        // A device that browned out or rebooted comes back with the default frame periods.
+        // This runs in the main loop and a brownout resets every device at once, so the
+        // periods are sent without waiting for each to be confirmed.
+        if (drive.hasResetOccurred()) {
+            configureStatusFrames(drive, 0);
+            m_frameResets++;
+        }
+        if (angle.hasResetOccurred()) {
+            configureStatusFrames(angle, 0);
+            m_frameResets++;
+        }
+        if (encoder.hasResetOccurred()) {
+            configureStatusFrames(encoder, 0);
+            m_frameResets++;
+        }
+
+        m_drivePosition[module] = drive.getSelectedSensorPosition();
+        boolean stale = drive.getLastError() != ErrorCode.OK;
+        m_driveVelocity[module] = drive.getSelectedSensorVelocity();
+        stale |= drive.getLastError() != ErrorCode.OK;
+        m_anglePosition[module] = angle.getSelectedSensorPosition();
+        stale |= angle.getLastError() != ErrorCode.OK;
+        m_absoluteAngle[module] = encoder.getAbsolutePosition();
+        stale |= encoder.getLastError() != ErrorCode.OK;
+
+        m_stale[module] = stale;
+        if (stale) {
+            m_staleReads++;
+        }
+    }
+
+    /**
+     * Reads every registered module's drive and angle motor positions for the odometry
+     * thread, without touching what refresh() published.
+     * @param drivePositions Filled with each drive motor's position, in Falcon counts
+     * @param anglePositions Filled with each angle motor's position, in Falcon counts
+     * @return True if every position updated
+     */
+    public boolean readOdometry(double[] drivePositions, double[] anglePositions) {
+        boolean stale = false;
+        synchronized (m_deviceLock) {
+            for (int i = 0; i < m_driveMotors.length; i++) {
+                if (m_driveMotors[i] == null) {
+                    continue;
+                }
+                drivePositions[i] = m_driveMotors[i].getSelectedSensorPosition();
+                stale |= m_driveMotors[i].getLastError() != ErrorCode.OK;
+                anglePositions[i] = m_angleMotors[i].getSelectedSensorPosition();
+                stale |= m_angleMotors[i].getLastError() != ErrorCode.OK;
+            }
+        }
+
+        if (stale) {
+            m_odometryStaleReads++;
+        }
+        return !stale;
+    }
+
+    /**
+     * @return FPGA time of the latest refresh, in seconds
+     */
+    public double getTimestamp() {
+        return m_timestamp;
+    }
+
+    /** @return Drive motor position, in Falcon counts */
+    public double getDrivePosition(int module) {
+        return m_drivePosition[module];
+    }
+
+    /** @return Drive motor velocity, in Falcon counts per 100 ms */
+    public double getDriveVelocity(int module) {
+        return m_driveVelocity[module];
+    }
+
+    /** @return Angle motor position, in Falcon counts */
+    public double getAnglePosition(int module) {
+        return m_anglePosition[module];
+    }
+
+    /** @return CANCoder absolute position, in degrees */
+    public double getAbsoluteAngle(int module) {
+        return m_absoluteAngle[module];
+    }
+
+    /**
+     * @return True if any of the module's signals failed to update at the latest refresh
+     */
+    public boolean isStale(int module) {
+        return m_stale[module];
+    }
+
+    public long getStaleReads() {
+        return m_staleReads;
+    }
+
+    public void updateDashboard() {
+        CANStatus canStatus = RobotController.getCANStatus();
+        SmartDashboard.putNumber("CAN Utilization", canStatus.percentBusUtilization * 100.0);
+        SmartDashboard.putNumber("CAN Tx Full", canStatus.txFullCount);
+        SmartDashboard.putNumber("CAN Rx Errors", canStatus.receiveErrorCount);
+        SmartDashboard.putNumber("CAN Tx Errors", canStatus.transmitErrorCount);
+        SmartDashboard.putNumber("CAN Stale Reads", m_staleReads);
+        SmartDashboard.putNumber("CAN Odometry Stale Reads", m_odometryStaleReads);
+        SmartDashboard.putNumber("CAN Frame Resets", m_frameResets);
+        for (int i = 0; i < m_stale.length; i++) {
+            SmartDashboard.putBoolean(m_staleKeys[i], m_stale[i]);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package frc.robot.classes;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.CentripetalAccelerationConstraint;
+import edu.wpi.first.math.trajectory.TrajectoryConfig;
+import edu.wpi.first.wpilibj.DriverStation.Alliance;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.lib.util.SwerveConstants;
+import frc.lib.util.SwerveConstants.AutoConstants;
+import frc.lib.util.SwerveTrajectory;
+import frc.robot.commands.SequentialAutoCommand.StartPositions;
+
+/**
+ * The trajectory for every autonomous start position, loaded once in robotInit so
+ * starting an auto only looks one up. Routes are written for the blue alliance in field
+ * meters and mirrored across the field for red, since the alliance is not known until the
+ * driver station connects.
+ *
+ * The build compiles every route into the deploy directory (see TrajectoryCompiler), so
+ * the robot only maps the files. A route whose file is missing or unreadable is
+ * generated at startup instead.
+ */
+public final class AutoRoutes {
+    /** Where compiled routes are kept, relative to the deploy directory */
+    public static final String TRAJECTORY_DIRECTORY = "trajectories";
+    private static final Alliance[] ALLIANCES = { Alliance.Blue, Alliance.Red };
+
+    private static final Map<StartPositions, SwerveTrajectory> m_blueRoutes = new EnumMap<>(StartPositions.class);
+    private static final Map<StartPositions, SwerveTrajectory> m_redRoutes = new EnumMap<>(StartPositions.class);
+
+    private AutoRoutes() {
+    }
+
+    /**
+     * @return The blue alliance route for a start position, robot center and heading in
+     * meters and radians, or an empty array if it does not drive
+     */
+    public static Position2D[] getWaypoints(StartPositions startPosition) { //TODO: These must be tuned to the field
+        switch (startPosition) {
+            case DRIVE_BACKWARD:
+                // Back out of the community along the cable bump side
+                return new Position2D[] {
+                    new Position2D(1.85, 0.50, Math.PI),
+                    new Position2D(4.50, 0.50, Math.PI)
+                };
+            case LEFT_SIDE_SCORE:
+                // Past the charge station to the closest staged piece and back to the grid
+                return new Position2D[] {
+                    new Position2D(1.85, 4.98, Math.PI),
+                    new Position2D(5.30, 4.75, Math.PI),
+                    new Position2D(6.50, 4.58, 0.0),
+                    new Position2D(5.30, 4.75, Math.PI),
+                    new Position2D(1.85, 4.42, Math.PI)
+                };
+            case RIGHT_SIDE_SCORE:
+                return new Position2D[] {
+                    new Position2D(1.85, 0.51, Math.PI),
+                    new Position2D(5.30, 0.75, Math.PI),
+                    new Position2D(6.50, 0.92, 0.0),
+                    new Position2D(5.30, 0.75, Math.PI),
+                    new Position2D(1.85, 1.07, Math.PI)
+                };
+            case CENTER_ENGAGE:
+                return new Position2D[] {
+                    new Position2D(1.85, 2.75, Math.PI),
+                    new Position2D(3.90, 2.75, Math.PI)
+                };
+            case SCORE_AND_ENGAGE:
+                // Over the charge station out of the community, then back onto it
+                return new Position2D[] {
+                    new Position2D(1.85, 2.75, Math.PI),
+                    new Position2D(6.00, 2.75, Math.PI),
+                    new Position2D(3.90, 2.75, Math.PI)
+                };
+            case DONT_MOVE:
+            case SCORE_DONT_MOVE:
+            default:
+                return new Position2D[0];
+        }
+    }
+
+    /**
+     * Maps every route for both alliances from the deploy directory, generating any that
+     * were not compiled. Call once at startup.
+     */
+    public static void load() {
+        long start = System.nanoTime();
+        Path directory = Filesystem.getDeployDirectory().toPath().resolve(TRAJECTORY_DIRECTORY);
+        int loaded = 0;
+        int generated = 0;
+
+        for (StartPositions startPosition : StartPositions.values()) {
+            if (getWaypoints(startPosition).length < 2) {
+                continue;
+            }
+
+            for (Alliance alliance : ALLIANCES) {
+                Path file = directory.resolve(getFileName(startPosition, alliance));
+                SwerveTrajectory trajectory;
+                try {
+                    trajectory = SwerveTrajectory.load(file);
+                    loaded++;
+                } catch (IOException e) {
+                    System.err.println("Unable to load " + file + ", generating it: " + e.getMessage());
+                    trajectory = generate(startPosition, alliance, FieldLayout.getInstance().getFieldLength());
+                    generated++;
+                }
+                (alliance == Alliance.Red ? m_redRoutes : m_blueRoutes).put(startPosition, trajectory);
+            }
+        }
+        System.out.printf("Loaded %d auto routes and generated %d in %.1f ms%n", loaded, generated, (System.nanoTime() - start) * 1e-6);
+    }
+
+    /**
+     * Generates every route for both alliances and writes them to a directory for load().
+     * Runs at build time, off the robot.
+     */
+    public static void compile(Path directory, double fieldLength) throws IOException {
+        Files.createDirectories(directory);
+        for (StartPositions startPosition : StartPositions.values()) {
+            if (getWaypoints(startPosition).length < 2) {
+                continue;
+            }
+            for (Alliance alliance : ALLIANCES) {
+                Path file = directory.resolve(getFileName(startPosition, alliance));
+                SwerveTrajectory trajectory = generate(startPosition, alliance, fieldLength);
+                trajectory.write(file);
+                System.out.printf("Compiled %s: %d samples, %.2f s%n", file.getFileName(), trajectory.getSampleCount(), trajectory.getDuration());
+            }
+        }
+    }
+
+    /**
+     * Generates one route, mirrored across the field for the red alliance.
+     */
+    public static SwerveTrajectory generate(StartPositions startPosition, Alliance alliance, double fieldLength) {
+        Position2D[] waypoints = getWaypoints(startPosition);
+        Pose2d[] poses = new Pose2d[waypoints.length];
+        for (int i = 0; i < waypoints.length; i++) {
+            Position2D waypoint = waypoints[i];
+            if (alliance == Alliance.Red) {
+                poses[i] = new Pose2d(fieldLength - waypoint.getX(), waypoint.getY(), new Rotation2d(Math.PI - waypoint.getHeadingRadians()));
+            } else {
+                poses[i] = new Pose2d(waypoint.getX(), waypoint.getY(), new Rotation2d(waypoint.getHeadingRadians()));
+            }
+        }
+        return SwerveTrajectory.generate(getTrajectoryConfig(), AutoConstants.kTrajectorySamplePeriod, poses);
+    }
+
+    private static String getFileName(StartPositions startPosition, Alliance alliance) {
+        return alliance.name().toLowerCase() + "_" + startPosition.name().toLowerCase() + ".traj";
+    }
+
+    /**
+     * @return The route's trajectory, or null if the start position does not drive or the
+     * routes were not generated
+     */
+    public static SwerveTrajectory get(StartPositions startPosition, Alliance alliance) {
+        return (alliance == Alliance.Red ? m_redRoutes : m_blueRoutes).get(startPosition);
+    }
+
+    /**
+     * @return The limits every auto route is generated with
+     */
+    public static TrajectoryConfig getTrajectoryConfig() {
+        return new TrajectoryConfig(AutoConstants.kMaxSpeedMetersPerSecond, AutoConstants.kMaxAccelerationMetersPerSecondSquared)
+            .setKinematics(SwerveConstants.Swerve.swerveKinematics)
+            .addConstraint(new CentripetalAccelerationConstraint(AutoConstants.kMaxCentripetalAccelerationMetersPerSecondSquared));
+    }
+}
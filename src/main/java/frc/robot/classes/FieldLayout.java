@@ -0,0 +1,93 @@
+package frc.robot.classes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import edu.wpi.first.apriltag.AprilTag;
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Pose3d;
+import edu.wpi.first.wpilibj.Filesystem;
+
+/**
+ * Surveyed AprilTag poses, loaded once from the deploy directory and stored in arrays
+ * indexed by fiducial ID so a lookup is a single array read.
+ */
+public class FieldLayout {
+    public static final String LAYOUT_FILE = "apriltags/2023-chargedup.json";
+    /* Field size used when the layout does not load */
+    public static final double DEFAULT_FIELD_LENGTH = 16.54d; // meters
+    public static final double DEFAULT_FIELD_WIDTH = 8.02d; // meters
+
+    private static final FieldLayout m_fieldLayout = new FieldLayout();
+
+    private final Pose3d[] m_tagPoses3d;
+    private final Pose2d[] m_tagPoses2d;
+    private final double m_fieldLength;
+    private final double m_fieldWidth;
+
+    private FieldLayout() {
+        Path path = Filesystem.getDeployDirectory().toPath().resolve(LAYOUT_FILE);
+        AprilTagFieldLayout layout = null;
+        try {
+            layout = new AprilTagFieldLayout(path);
+        } catch (IOException e) {
+            System.err.println("Unable to load AprilTag layout " + path + ": " + e.getMessage());
+        }
+
+        int maxId = -1;
+        if (layout != null) {
+            for (AprilTag tag : layout.getTags()) {
+                maxId = Math.max(maxId, tag.ID);
+            }
+        }
+
+        m_tagPoses3d = new Pose3d[maxId + 1];
+        m_tagPoses2d = new Pose2d[maxId + 1];
+        if (layout != null) {
+            for (AprilTag tag : layout.getTags()) {
+                if (tag.ID >= 0) {
+                    m_tagPoses3d[tag.ID] = tag.pose;
+                    m_tagPoses2d[tag.ID] = tag.pose.toPose2d();
+                }
+            }
+            m_fieldLength = layout.getFieldLength();
+            m_fieldWidth = layout.getFieldWidth();
+        } else {
+            m_fieldLength = DEFAULT_FIELD_LENGTH;
+            m_fieldWidth = DEFAULT_FIELD_WIDTH;
+        }
+    }
+
+    public static FieldLayout getInstance() {
+        return m_fieldLayout;
+    }
+
+    /**
+     * @param id The tag's fiducial ID
+     * @return The tag's field space pose, or null if the tag is not on the field
+     */
+    public Pose2d getTagPose(int id) {
+        return (id >= 0 && id < m_tagPoses2d.length) ? m_tagPoses2d[id] : null;
+    }
+
+    /**
+     * @param id The tag's fiducial ID
+     * @return The tag's field space pose, or null if the tag is not on the field
+     */
+    public Pose3d getTagPose3d(int id) {
+        return (id >= 0 && id < m_tagPoses3d.length) ? m_tagPoses3d[id] : null;
+    }
+
+    public boolean hasTag(int id) {
+        return getTagPose(id) != null;
+    }
+
+    public double getFieldLength() {
+        return m_fieldLength;
+    }
+
+    public double getFieldWidth() {
+        return m_fieldWidth;
+    }
+}
@@ -0,0 +1,170 @@
+package frc.robot.classes;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+
+/**
+ * The smooth control law for a swerve drive, following a route of waypoints.
+ *
+ * A tank drive has to face the way it drives, so the law steers its heading. A swerve
+ * drive can translate in any direction, so here the law steers the direction of travel
+ * instead, and the robot's heading is driven to each waypoint's heading separately.
+ * Intermediate waypoints are approached pointing at the next one and are passed within
+ * a radius instead of stopped at, so the robot rounds them at speed; only the final
+ * waypoint is braked into. Positions are in meters, headings in radians, field relative.
+ */
+public class HolonomicSmoothControl extends SmoothControl {
+    /** Below this the robot's measured velocity has no useful direction */
+    private static final double MOVING_SPEED = 0.1; // meters per second
+
+    private final double m_maxVelocity;
+    private final double m_maxAcceleration;
+    private final double m_maxAngularVelocity;
+    private final double m_positionP;
+    private final double m_headingP;
+    private final double m_passRadius;
+    private final double m_captureRadius;
+
+    private Position2D[] m_waypoints = new Position2D[0];
+    private int m_index;
+    private double m_travelHeading; // radians
+    private double m_finalApproach; // direction the final waypoint is approached from, radians
+
+    /**
+     * @param maxVelocity Fastest the robot translates, in meters per second
+     * @param maxAcceleration Deceleration used to brake into the final waypoint, in meters per second squared
+     * @param maxAngularVelocity Fastest the robot turns, in radians per second
+     * @param positionP Gain driving the robot onto the final waypoint once it is captured
+     * @param headingP Gain driving the robot to each waypoint's heading
+     * @param passRadius How close an intermediate waypoint must be passed, in meters
+     * @param captureRadius How close to the final waypoint the robot drives straight at it, in meters
+     */
+    public HolonomicSmoothControl(double maxVelocity, double maxAcceleration, double maxAngularVelocity,
+            double positionP, double headingP, double passRadius, double captureRadius) {
+        m_maxVelocity = maxVelocity;
+        m_maxAcceleration = maxAcceleration;
+        m_maxAngularVelocity = maxAngularVelocity;
+        m_positionP = positionP;
+        m_headingP = headingP;
+        m_passRadius = passRadius;
+        m_captureRadius = captureRadius;
+    }
+
+    /**
+     * Starts a route. If the robot is already moving, travel continues in that direction
+     * and curves onto the route instead of turning sharply.
+     * @param pose The robot's current pose
+     * @param fieldVelocity The robot's current field relative velocity, in meters per second
+     * @param waypoints The route, in order
+     */
+    public void start(Pose2d pose, Translation2d fieldVelocity, Position2D... waypoints) {
+        m_waypoints = waypoints;
+        m_index = 0;
+        if (waypoints.length == 0) {
+            return;
+        }
+
+        Position2D first = waypoints[0];
+        if (fieldVelocity.getNorm() > MOVING_SPEED) {
+            m_travelHeading = Math.atan2(fieldVelocity.getY(), fieldVelocity.getX());
+        } else {
+            m_travelHeading = Math.atan2(first.getY() - pose.getY(), first.getX() - pose.getX());
+        }
+
+        // The final waypoint is approached along the last leg of the route
+        Position2D last = waypoints[waypoints.length - 1];
+        double fromX = waypoints.length > 1 ? waypoints[waypoints.length - 2].getX() : pose.getX();
+        double fromY = waypoints.length > 1 ? waypoints[waypoints.length - 2].getY() : pose.getY();
+        m_finalApproach = Math.atan2(last.getY() - fromY, last.getX() - fromX);
+    }
+
+    /**
+     * @param pose The robot's current pose
+     * @param dtSeconds Time since the last call
+     * @return Field relative speeds to drive at
+     */
+    public ChassisSpeeds calculate(Pose2d pose, double dtSeconds) {
+        if (m_waypoints.length == 0) {
+            return new ChassisSpeeds();
+        }
+
+        // Move on from intermediate waypoints as soon as they are close enough, without stopping
+        Position2D target = m_waypoints[m_index];
+        double dx = target.getX() - pose.getX();
+        double dy = target.getY() - pose.getY();
+        double range = Math.hypot(dx, dy);
+        while (!isFinalWaypoint() && range < m_passRadius) {
+            m_index++;
+            target = m_waypoints[m_index];
+            dx = target.getX() - pose.getX();
+            dy = target.getY() - pose.getY();
+            range = Math.hypot(dx, dy);
+        }
+
+        double speed;
+        if (isFinalWaypoint() && range < m_captureRadius) {
+            // The law's curvature grows without bound at the target, so finish with a straight line
+            m_travelHeading = Math.atan2(dy, dx);
+            speed = Math.min(m_maxVelocity, m_positionP * range);
+        } else {
+            double rAngle = Math.atan2(dy, dx);
+            double thetaT = limitRadians(getApproachHeading() - rAngle);
+            double delR = limitRadians(m_travelHeading - rAngle);
+            double k = calculateK(range, thetaT, delR);
+            speed = vGivenK(k, m_maxVelocity);
+            m_travelHeading = limitRadians(m_travelHeading + k * speed * dtSeconds);
+        }
+        if (isFinalWaypoint()) {
+            // Slow enough to stop at the final waypoint
+            speed = Math.min(speed, Math.sqrt(2.0 * m_maxAcceleration * range));
+        }
+
+        double headingError = MathUtil.angleModulus(target.getHeadingRadians() - pose.getRotation().getRadians());
+        double omega = MathUtil.clamp(m_headingP * headingError, -m_maxAngularVelocity, m_maxAngularVelocity);
+
+        return new ChassisSpeeds(speed * Math.cos(m_travelHeading), speed * Math.sin(m_travelHeading), omega);
+    }
+
+    /**
+     * @return True once the robot is on the final waypoint at its heading
+     */
+    public boolean atGoal(Pose2d pose, double positionTolerance, double headingTolerance) {
+        if (m_waypoints.length == 0) {
+            return true;
+        }
+        if (!isFinalWaypoint()) {
+            return false;
+        }
+
+        Position2D target = m_waypoints[m_index];
+        double range = Math.hypot(target.getX() - pose.getX(), target.getY() - pose.getY());
+        double headingError = MathUtil.angleModulus(target.getHeadingRadians() - pose.getRotation().getRadians());
+        return range < positionTolerance && Math.abs(headingError) < headingTolerance;
+    }
+
+    /**
+     * @return The index of the waypoint being driven to
+     */
+    public int getWaypointIndex() {
+        return m_index;
+    }
+
+    private boolean isFinalWaypoint() {
+        return m_index == m_waypoints.length - 1;
+    }
+
+    /**
+     * @return The direction to pass through the current waypoint: towards the next one, or
+     * along the last leg for the final waypoint
+     */
+    private double getApproachHeading() {
+        if (isFinalWaypoint()) {
+            return m_finalApproach;
+        }
+        Position2D target = m_waypoints[m_index];
+        Position2D next = m_waypoints[m_index + 1];
+        return Math.atan2(next.getY() - target.getY(), next.getX() - target.getX());
+    }
+}
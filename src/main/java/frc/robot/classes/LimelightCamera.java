@@ -0,0 +1,222 @@
+package frc.robot.classes;
+
+import java.util.List;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Rotation3d;
+import edu.wpi.first.math.geometry.Transform3d;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.robot.LimelightHelpers;
+import frc.robot.LimelightHelpers.LimelightResults;
+import frc.robot.LimelightHelpers.LimelightTarget_Fiducial;
+import frc.robot.LimelightHelpers.Results;
+
+/**
+ * One Limelight on the robot: its name, where it is mounted and the counters used to
+ * tell which camera is holding vision back.
+ */
+public class LimelightCamera {
+    private static final double RATE_WINDOW_SECONDS = 1.0d;
+    private static final double LATENCY_SMOOTHING = 0.1d; // weight of the newest frame in the average
+    private static final double UNKNOWN_TAG_DISTANCE = 4.0d; // meters, assumed when the json dump is off
+
+    public final String name;
+    public final Transform3d robotToCamera; // null if the mount is only set on the limelight
+    private final LimelightIngest m_ingest;
+    private final LimelightResults m_results = new LimelightResults();
+    private LimelightFrame m_parsedFrame;
+
+    private long m_observations;
+    private double m_lastLatencyMs;
+    private double m_averageLatencyMs;
+    private double m_framesPerSecond;
+    private long m_windowStartMicros;
+    private long m_windowFrames;
+
+    // Dashboard keys are built once so telemetry does not concatenate strings every loop
+    private final String m_fpsKey;
+    private final String m_latencyKey;
+    private final String m_averageLatencyKey;
+    private final String m_framesKey;
+    private final String m_overflowKey;
+
+    /**
+     * A camera whose mount is set up in the limelight's web interface.
+     * @param name The limelight's NetworkTables name
+     */
+    public LimelightCamera(String name) {
+        this(name, null);
+    }
+
+    /**
+     * @param name The limelight's NetworkTables name
+     * @param robotToCamera Where the camera is mounted relative to the robot center, or null
+     * to keep the mount set up in the limelight's web interface
+     */
+    public LimelightCamera(String name, Transform3d robotToCamera) {
+        this.name = name;
+        this.robotToCamera = robotToCamera;
+        m_ingest = new LimelightIngest(name);
+
+        // Let the limelight solve botpose for where it is actually mounted
+        if (robotToCamera != null) {
+            Rotation3d rotation = robotToCamera.getRotation();
+            LimelightHelpers.setCameraPose_RobotSpace(name,
+                robotToCamera.getX(), robotToCamera.getY(), robotToCamera.getZ(),
+                Math.toDegrees(rotation.getX()), Math.toDegrees(rotation.getY()), Math.toDegrees(rotation.getZ()));
+        }
+
+        m_fpsKey = "Vision/" + name + "/Frames Per Second";
+        m_latencyKey = "Vision/" + name + "/Latency ms";
+        m_averageLatencyKey = "Vision/" + name + "/Average Latency ms";
+        m_framesKey = "Vision/" + name + "/Frames";
+        m_overflowKey = "Vision/" + name + "/Queue Overflows";
+    }
+
+    /**
+     * Reads every frame received since the last call and updates the camera's counters.
+     * @param frames The list to add new frames to
+     * @param nowMicros The current FPGA time in microseconds
+     * @return The number of frames added
+     */
+    public int poll(List<LimelightFrame> frames, long nowMicros) {
+        int start = frames.size();
+        int count = m_ingest.poll(frames);
+
+        for (int i = start; i < frames.size(); i++) {
+            LimelightFrame frame = frames.get(i);
+            m_lastLatencyMs = frame.latencyPipelineMs + frame.latencyCaptureMs;
+            m_averageLatencyMs += LATENCY_SMOOTHING * (m_lastLatencyMs - m_averageLatencyMs);
+        }
+
+        m_windowFrames += count;
+        double windowSeconds = (nowMicros - m_windowStartMicros) * 1.0e-6;
+        if (windowSeconds >= RATE_WINDOW_SECONDS) {
+            m_framesPerSecond = m_windowFrames / windowSeconds;
+            m_windowFrames = 0;
+            m_windowStartMicros = nowMicros;
+        }
+
+        return count;
+    }
+
+    /**
+     * Parses a frame's json dump into this camera's reusable results, reusing the last
+     * parse if it was for the same frame.
+     * @return The parsed results, with no fiducials if the json dump is turned off
+     */
+    public Results getResults(LimelightFrame frame) {
+        if (frame != m_parsedFrame) {
+            m_parsedFrame = frame;
+            if (frame.json.isEmpty()) {
+                m_results.targetingResults.valid = false;
+                m_results.targetingResults.fiducialCount = 0;
+            } else {
+                LimelightHelpers.parseLatestResults(frame.json, m_results);
+            }
+        }
+        return m_results.targetingResults;
+    }
+
+    /**
+     * Turns a frame into a field space pose observation, stamped with the time the
+     * image was captured rather than when it reached the robot.
+     * @param nowMicros The current FPGA time in microseconds
+     * @return The observation, or null if the frame has no usable pose
+     */
+    public VisionObservation toObservation(int cameraIndex, LimelightFrame frame, long nowMicros) {
+        double[] botpose = frame.botpose;
+        if (!frame.hasTarget || botpose.length < 6) {
+            return null;
+        }
+
+        // An all zero botpose means the limelight saw a target it could not localize from
+        if (botpose[0] == 0.0d && botpose[1] == 0.0d) {
+            return null;
+        }
+
+        Pose2d pose = new Pose2d(botpose[0], botpose[1], Rotation2d.fromDegrees(botpose[5]));
+        double latencyMs = frame.latencyPipelineMs + frame.latencyCaptureMs;
+
+        // Per tag details only come through the json dump
+        int tagCount = 1;
+        double distance = UNKNOWN_TAG_DISTANCE;
+        double area = 0.0d;
+        double ambiguity = 0.0d;
+        Results results = getResults(frame);
+        if (results.fiducialCount > 0) {
+            tagCount = results.fiducialCount;
+            distance = 0.0d;
+            double meanX = 0.0d;
+            double meanY = 0.0d;
+            for (int i = 0; i < tagCount; i++) {
+                LimelightTarget_Fiducial target = results.targets_Fiducials[i];
+                distance += target.getTargetDistance_CameraSpace();
+                area += target.ta;
+                meanX += target.getRobotX_FieldSpace();
+                meanY += target.getRobotY_FieldSpace();
+            }
+            distance /= tagCount;
+            area /= tagCount;
+            meanX /= tagCount;
+            meanY /= tagCount;
+
+            // The limelight does not report pose ambiguity, so use how far the robot
+            // pose from each individual tag strays from their average
+            for (int i = 0; i < tagCount; i++) {
+                LimelightTarget_Fiducial target = results.targets_Fiducials[i];
+                ambiguity = Math.max(ambiguity, Math.hypot(target.getRobotX_FieldSpace() - meanX, target.getRobotY_FieldSpace() - meanY));
+            }
+        }
+
+        m_observations++;
+        return new VisionObservation(cameraIndex, pose, getCaptureTimestamp(frame, nowMicros), latencyMs,
+            tagCount, distance, area, ambiguity);
+    }
+
+    /**
+     * Back-dates a frame to when its image was captured. The frame's NT timestamp is
+     * when the limelight published it, already in the FPGA time base, so subtracting
+     * the pipeline (tl) and capture (cl) latency gives the capture time.
+     * @return The FPGA time the frame was captured, in seconds
+     */
+    public static double getCaptureTimestamp(LimelightFrame frame, long nowMicros) {
+        long publishedMicros = frame.timestampMicros;
+        if (publishedMicros <= 0 || publishedMicros > nowMicros) {
+            // No usable publish time, assume it just arrived
+            publishedMicros = nowMicros;
+        }
+
+        double latencySeconds = (frame.latencyPipelineMs + frame.latencyCaptureMs) * 1.0e-3;
+        return publishedMicros * 1.0e-6 - latencySeconds;
+    }
+
+    public long getFramesReceived() {
+        return m_ingest.getFramesReceived();
+    }
+
+    public long getObservations() {
+        return m_observations;
+    }
+
+    public double getFramesPerSecond() {
+        return m_framesPerSecond;
+    }
+
+    public double getLastLatencyMs() {
+        return m_lastLatencyMs;
+    }
+
+    public double getAverageLatencyMs() {
+        return m_averageLatencyMs;
+    }
+
+    public void updateDashboard() {
+        SmartDashboard.putNumber(m_fpsKey, m_framesPerSecond);
+        SmartDashboard.putNumber(m_latencyKey, m_lastLatencyMs);
+        SmartDashboard.putNumber(m_averageLatencyKey, m_averageLatencyMs);
+        SmartDashboard.putNumber(m_framesKey, m_ingest.getFramesReceived());
+        SmartDashboard.putNumber(m_overflowKey, m_ingest.getPossibleOverflows());
+    }
+}
@@ -0,0 +1,35 @@
+package frc.robot.classes;
+
+/**
+ * One camera frame as published by a Limelight, assembled from the individual
+ * NetworkTables values that make it up.
+ */
+public class LimelightFrame {
+    /** Local (FPGA) time the frame's values were published, in microseconds */
+    public final long timestampMicros;
+    /** NetworkTables server time the frame's values were published, in microseconds */
+    public final long serverTimeMicros;
+
+    public final boolean hasTarget;
+    public final double tx;
+    public final double ty;
+    public final int tid; // primary fiducial ID, -1 when none
+    public final double latencyPipelineMs;
+    public final double latencyCaptureMs;
+    public final double[] botpose; // wpiblue field space, [x, y, z, roll, pitch, yaw, ...]
+    public final String json;
+
+    public LimelightFrame(long timestampMicros, long serverTimeMicros, boolean hasTarget, double tx, double ty,
+            int tid, double latencyPipelineMs, double latencyCaptureMs, double[] botpose, String json) {
+        this.timestampMicros = timestampMicros;
+        this.serverTimeMicros = serverTimeMicros;
+        this.hasTarget = hasTarget;
+        this.tx = tx;
+        this.ty = ty;
+        this.tid = tid;
+        this.latencyPipelineMs = latencyPipelineMs;
+        this.latencyCaptureMs = latencyCaptureMs;
+        this.botpose = botpose;
+        this.json = json;
+    }
+}
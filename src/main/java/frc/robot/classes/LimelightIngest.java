@@ -0,0 +1,204 @@
+package frc.robot.classes;
+
+import java.util.List;
+
+import edu.wpi.first.networktables.DoubleArraySubscriber;
+import edu.wpi.first.networktables.DoubleSubscriber;
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.networktables.PubSubOption;
+import edu.wpi.first.networktables.StringSubscriber;
+import edu.wpi.first.networktables.TimestampedDouble;
+import edu.wpi.first.networktables.TimestampedDoubleArray;
+import edu.wpi.first.networktables.TimestampedString;
+
+/**
+ * Subscribes once to a Limelight's topics and turns the queued NetworkTables updates
+ * into {@link LimelightFrame}s, handing each frame out exactly once.
+ *
+ * The Limelight publishes "tl" every frame with a new value, so its queue marks the
+ * frames. The values of one frame are published together, so every other topic is
+ * matched to the marker its server timestamp is closest to: values up to halfway to the
+ * next marker belong to a frame. For the newest marker the next one is not known yet, so
+ * the camera's measured frame period stands in for it. Topics that did not change (NT
+ * drops duplicate values) carry over from the previous frame.
+ *
+ * NetworkTables hands out a new array for every queue read, so the other topics are only
+ * read once a new marker has arrived; until then their values wait in the queue.
+ */
+public class LimelightIngest implements AutoCloseable {
+    /** Frames kept by NetworkTables between polls, anything older is dropped */
+    public static final int QUEUE_DEPTH = 32;
+    /** Where between two markers one frame's values end and the next frame's begin */
+    private static final double FRAME_BOUNDARY_FRACTION = 0.5d;
+    /** Assumed frame period until the camera's has been measured, 30 fps */
+    private static final double DEFAULT_FRAME_PERIOD_MICROS = 1.0e6d / 30.0d;
+    /** Weight of the newest marker interval in the frame period estimate */
+    private static final double FRAME_PERIOD_SMOOTHING = 0.1d;
+    private static final double[] EMPTY_POSE = new double[0];
+
+    private final DoubleSubscriber m_latencyPipelineSub;
+    private final DoubleSubscriber m_latencyCaptureSub;
+    private final DoubleSubscriber m_tvSub;
+    private final DoubleSubscriber m_txSub;
+    private final DoubleSubscriber m_tySub;
+    private final DoubleSubscriber m_tidSub;
+    private final DoubleArraySubscriber m_botposeSub;
+    private final StringSubscriber m_jsonSub;
+
+    // Values carried between frames, for topics that were not republished
+    private double m_tv;
+    private double m_tx;
+    private double m_ty;
+    private double m_tid = -1.0d;
+    private double m_latencyCapture;
+    private double[] m_botpose;
+    private String m_json;
+
+    private long m_lastMarkerTime = -1;
+    private double m_framePeriodMicros = DEFAULT_FRAME_PERIOD_MICROS;
+
+    private long m_framesReceived;
+    private long m_possibleOverflows;
+
+    public LimelightIngest(String limelightName) {
+        NetworkTable table = NetworkTableInstance.getDefault().getTable(limelightName);
+        PubSubOption[] options = {
+            PubSubOption.sendAll(true),
+            PubSubOption.keepDuplicates(true),
+            PubSubOption.pollStorage(QUEUE_DEPTH)
+        };
+
+        m_latencyPipelineSub = table.getDoubleTopic("tl").subscribe(0.0d, options);
+        m_latencyCaptureSub = table.getDoubleTopic("cl").subscribe(0.0d, options);
+        m_tvSub = table.getDoubleTopic("tv").subscribe(0.0d, options);
+        m_txSub = table.getDoubleTopic("tx").subscribe(0.0d, options);
+        m_tySub = table.getDoubleTopic("ty").subscribe(0.0d, options);
+        m_tidSub = table.getDoubleTopic("tid").subscribe(-1.0d, options);
+        m_botposeSub = table.getDoubleArrayTopic("botpose_wpiblue").subscribe(EMPTY_POSE, options);
+        m_jsonSub = table.getStringTopic("json").subscribe("", options);
+
+        m_botpose = EMPTY_POSE;
+        m_json = "";
+    }
+
+    /**
+     * Appends every frame received since the last poll to the given list, oldest first.
+     * @param frames The list to add new frames to
+     * @return The number of frames added
+     */
+    public int poll(List<LimelightFrame> frames) {
+        TimestampedDouble[] markers = m_latencyPipelineSub.readQueue();
+        if (markers.length == 0) {
+            return 0;
+        }
+
+        TimestampedDouble[] latencyCapture = m_latencyCaptureSub.readQueue();
+        TimestampedDouble[] tv = m_tvSub.readQueue();
+        TimestampedDouble[] tx = m_txSub.readQueue();
+        TimestampedDouble[] ty = m_tySub.readQueue();
+        TimestampedDouble[] tid = m_tidSub.readQueue();
+        TimestampedDoubleArray[] botpose = m_botposeSub.readQueue();
+        TimestampedString[] json = m_jsonSub.readQueue();
+
+        int iCapture = 0;
+        int iTv = 0;
+        int iTx = 0;
+        int iTy = 0;
+        int iTid = 0;
+        int iBotpose = 0;
+        int iJson = 0;
+
+        for (int i = 0; i < markers.length; i++) {
+            TimestampedDouble marker = markers[i];
+            long markerTime = marker.serverTime;
+            if (m_lastMarkerTime >= 0 && markerTime > m_lastMarkerTime) {
+                m_framePeriodMicros += FRAME_PERIOD_SMOOTHING * ((markerTime - m_lastMarkerTime) - m_framePeriodMicros);
+            }
+            m_lastMarkerTime = markerTime;
+
+            double nextMarkerTime = i + 1 < markers.length ? markers[i + 1].serverTime : markerTime + m_framePeriodMicros;
+            long limit = markerTime + (long) ((nextMarkerTime - markerTime) * FRAME_BOUNDARY_FRACTION);
+
+            while (iCapture < latencyCapture.length && latencyCapture[iCapture].serverTime <= limit) {
+                m_latencyCapture = latencyCapture[iCapture++].value;
+            }
+            while (iTv < tv.length && tv[iTv].serverTime <= limit) {
+                m_tv = tv[iTv++].value;
+            }
+            while (iTx < tx.length && tx[iTx].serverTime <= limit) {
+                m_tx = tx[iTx++].value;
+            }
+            while (iTy < ty.length && ty[iTy].serverTime <= limit) {
+                m_ty = ty[iTy++].value;
+            }
+            while (iTid < tid.length && tid[iTid].serverTime <= limit) {
+                m_tid = tid[iTid++].value;
+            }
+            while (iBotpose < botpose.length && botpose[iBotpose].serverTime <= limit) {
+                m_botpose = botpose[iBotpose++].value;
+            }
+            while (iJson < json.length && json[iJson].serverTime <= limit) {
+                m_json = json[iJson++].value;
+            }
+
+            frames.add(new LimelightFrame(marker.timestamp, marker.serverTime, m_tv > 0, m_tx, m_ty,
+                (int) m_tid, marker.value, m_latencyCapture, m_botpose, m_json));
+        }
+
+        // Values newer than the last marker belong to a frame whose marker has not
+        // arrived yet, keep them so that frame still sees them
+        if (iCapture < latencyCapture.length) {
+            m_latencyCapture = latencyCapture[latencyCapture.length - 1].value;
+        }
+        if (iTv < tv.length) {
+            m_tv = tv[tv.length - 1].value;
+        }
+        if (iTx < tx.length) {
+            m_tx = tx[tx.length - 1].value;
+        }
+        if (iTy < ty.length) {
+            m_ty = ty[ty.length - 1].value;
+        }
+        if (iTid < tid.length) {
+            m_tid = tid[tid.length - 1].value;
+        }
+        if (iBotpose < botpose.length) {
+            m_botpose = botpose[botpose.length - 1].value;
+        }
+        if (iJson < json.length) {
+            m_json = json[json.length - 1].value;
+        }
+
+        m_framesReceived += markers.length;
+        if (markers.length >= QUEUE_DEPTH) {
+            m_possibleOverflows++;
+        }
+
+        return markers.length;
+    }
+
+    public long getFramesReceived() {
+        return m_framesReceived;
+    }
+
+    /**
+     * @return The number of polls that found a full queue, meaning frames may have been
+     * dropped because the queue was not read often enough
+     */
+    public long getPossibleOverflows() {
+        return m_possibleOverflows;
+    }
+
+    @Override
+    public void close() {
+        m_latencyPipelineSub.close();
+        m_latencyCaptureSub.close();
+        m_tvSub.close();
+        m_txSub.close();
+        m_tySub.close();
+        m_tidSub.close();
+        m_botposeSub.close();
+        m_jsonSub.close();
+    }
+}
@@ -0,0 +1,187 @@
+package frc.robot.classes;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sends snapshot requests to Limelights on one background thread of its own, so a
+ * camera that is slow or off the network never ties up threads the rest of the robot
+ * uses.
+ *
+ * Requests are bounded in every direction: connections and reads time out, at most
+ * a few requests wait in line and any more are dropped, a request identical to one
+ * already waiting shares its result instead of queueing again, and a camera that just
+ * timed out is skipped for a short cooldown instead of being retried every call.
+ */
+public class LimelightSnapshotQueue implements AutoCloseable {
+    /** Where the Limelight serves its REST API, %s is the camera name */
+    public static final String DEFAULT_URL_FORMAT = "http://%s.local:5807/";
+    public static final int DEFAULT_CONNECT_TIMEOUT_MS = 500;
+    public static final int DEFAULT_READ_TIMEOUT_MS = 1000;
+    public static final int DEFAULT_MAX_PENDING = 4;
+    /** How long requests to a camera are dropped after it timed out, in milliseconds */
+    public static final long DEFAULT_TIMEOUT_COOLDOWN_MS = 5000;
+
+    private final String m_urlFormat;
+    private final int m_connectTimeoutMs;
+    private final int m_readTimeoutMs;
+    private final long m_timeoutCooldownNanos;
+    private final ThreadPoolExecutor m_executor;
+
+    private final Map<String, CompletableFuture<Boolean>> m_pending = new ConcurrentHashMap<>();
+    private final Map<String, Long> m_cooldownUntil = new ConcurrentHashMap<>();
+
+    private final AtomicLong m_succeeded = new AtomicLong();
+    private final AtomicLong m_failed = new AtomicLong();
+    private final AtomicLong m_dropped = new AtomicLong();
+    private final AtomicLong m_coalesced = new AtomicLong();
+
+    public LimelightSnapshotQueue() {
+        this(DEFAULT_URL_FORMAT, DEFAULT_CONNECT_TIMEOUT_MS, DEFAULT_READ_TIMEOUT_MS, DEFAULT_MAX_PENDING,
+            DEFAULT_TIMEOUT_COOLDOWN_MS);
+    }
+
+    /**
+     * @param urlFormat Base URL of a camera's REST API, %s is replaced with the camera name.
+     * Point this at a local server to exercise the queue without a camera.
+     * @param connectTimeoutMs Longest wait to connect to a camera
+     * @param readTimeoutMs Longest wait for a camera to respond once connected
+     * @param maxPending Requests that may wait behind the one being sent before new ones are dropped
+     * @param timeoutCooldownMs How long a camera that timed out is skipped for
+     */
+    public LimelightSnapshotQueue(String urlFormat, int connectTimeoutMs, int readTimeoutMs, int maxPending,
+            long timeoutCooldownMs) {
+        m_urlFormat = urlFormat;
+        m_connectTimeoutMs = connectTimeoutMs;
+        m_readTimeoutMs = readTimeoutMs;
+        m_timeoutCooldownNanos = TimeUnit.MILLISECONDS.toNanos(timeoutCooldownMs);
+
+        m_executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, maxPending)),
+            runnable -> {
+                Thread thread = new Thread(runnable, "LimelightSnapshot");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * Queues a snapshot request.
+     * @param limelightName The camera to take the snapshot on
+     * @param snapshotName Name to save the snapshot as, null or empty for the camera's default
+     * @return Completes with true once the camera accepted the snapshot, false if the request
+     * failed or was dropped. Never completes exceptionally.
+     */
+    public CompletableFuture<Boolean> takeSnapshot(String limelightName, String snapshotName) {
+        String name = snapshotName == null ? "" : snapshotName;
+
+        Long cooldownUntil = m_cooldownUntil.get(limelightName);
+        if (cooldownUntil != null && System.nanoTime() - cooldownUntil < 0) {
+            m_dropped.incrementAndGet();
+            return CompletableFuture.completedFuture(false);
+        }
+
+        String key = limelightName + '\0' + name;
+        CompletableFuture<Boolean> future = new CompletableFuture<>();
+        CompletableFuture<Boolean> existing = m_pending.putIfAbsent(key, future);
+        if (existing != null) {
+            m_coalesced.incrementAndGet();
+            return existing;
+        }
+
+        try {
+            m_executor.execute(() -> {
+                // Later requests for the same snapshot start a new one from here on
+                m_pending.remove(key, future);
+                future.complete(send(limelightName, name));
+            });
+        } catch (RejectedExecutionException e) {
+            m_pending.remove(key, future);
+            m_dropped.incrementAndGet();
+            future.complete(false);
+        }
+        return future;
+    }
+
+    private boolean send(String limelightName, String snapshotName) {
+        HttpURLConnection connection = null;
+        try {
+            URL url = new URL(String.format(m_urlFormat, limelightName) + "capturesnapshot");
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setConnectTimeout(m_connectTimeoutMs);
+            connection.setReadTimeout(m_readTimeoutMs);
+            connection.setRequestMethod("GET");
+            if (!snapshotName.isEmpty()) {
+                connection.setRequestProperty("snapname", snapshotName);
+            }
+
+            int responseCode = connection.getResponseCode();
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                m_succeeded.incrementAndGet();
+                return true;
+            }
+            System.err.println("Bad LL Request: " + limelightName + " returned " + responseCode);
+        } catch (SocketTimeoutException e) {
+            m_cooldownUntil.put(limelightName, System.nanoTime() + m_timeoutCooldownNanos);
+            System.err.println("LL snapshot timed out: " + limelightName);
+        } catch (IOException e) {
+            System.err.println("LL snapshot failed: " + e.getMessage());
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+        m_failed.incrementAndGet();
+        return false;
+    }
+
+    public long getSucceeded() {
+        return m_succeeded.get();
+    }
+
+    public long getFailed() {
+        return m_failed.get();
+    }
+
+    /**
+     * @return Requests thrown out because the queue was full or the camera was cooling down
+     */
+    public long getDropped() {
+        return m_dropped.get();
+    }
+
+    /**
+     * @return Requests that shared the result of an identical request already waiting
+     */
+    public long getCoalesced() {
+        return m_coalesced.get();
+    }
+
+    /**
+     * @return Requests waiting behind the one being sent
+     */
+    public int getPending() {
+        return m_executor.getQueue().size();
+    }
+
+    @Override
+    public void close() {
+        m_executor.shutdownNow();
+        // Requests that never started are still in the map with callers waiting on them
+        for (CompletableFuture<Boolean> future : m_pending.values()) {
+            future.complete(false);
+        }
+        m_pending.clear();
+    }
+}
@@ -0,0 +1,111 @@
+package frc.robot.classes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Swerve module angle offsets kept in a small JSON file on the roboRIO instead of in
+ * code, so re-aligning the modules only needs the calibration routine, not a rebuild
+ * and redeploy. The offsets are read once and cached; the file is watched for changes
+ * so an edited or re-saved file is picked up without restarting robot code. Modules
+ * without a saved offset use their compiled-in default.
+ */
+public class ModuleCalibration {
+    public static final File DEFAULT_FILE = new File("/home/lvuser/swerve_calibration.json");
+
+    private static final ObjectMapper m_mapper = new ObjectMapper()
+        .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final File m_file;
+    private final double[] m_defaultOffsets;
+    private final double[] m_offsets;
+    private long m_loadedModified = -1;
+
+    /**
+     * The file's contents.
+     */
+    public static class CalibrationFile {
+        public double[] angleOffsetsDegrees;
+        public String savedAt;
+    }
+
+    /**
+     * @param file Where the calibration is stored
+     * @param defaultOffsetsDegrees Each module's compiled-in offset, used when the file has none
+     */
+    public ModuleCalibration(File file, double... defaultOffsetsDegrees) {
+        m_file = file;
+        m_defaultOffsets = defaultOffsetsDegrees.clone();
+        m_offsets = defaultOffsetsDegrees.clone();
+        reloadIfChanged();
+    }
+
+    /**
+     * @return The module's angle offset, in degrees
+     */
+    public double getAngleOffset(int module) {
+        return m_offsets[module];
+    }
+
+    /**
+     * Re-reads the file if it was modified since it was last read. Cheap enough to call
+     * periodically, it only checks the modification time.
+     * @return True if the offsets were reloaded
+     */
+    public boolean reloadIfChanged() {
+        long modified = m_file.lastModified(); // 0 if the file does not exist
+        if (modified == m_loadedModified) {
+            return false;
+        }
+        m_loadedModified = modified;
+
+        System.arraycopy(m_defaultOffsets, 0, m_offsets, 0, m_offsets.length);
+        if (modified == 0) {
+            return true;
+        }
+
+        try {
+            CalibrationFile calibration = m_mapper.readValue(m_file, CalibrationFile.class);
+            if (calibration.angleOffsetsDegrees != null) {
+                int count = Math.min(calibration.angleOffsetsDegrees.length, m_offsets.length);
+                System.arraycopy(calibration.angleOffsetsDegrees, 0, m_offsets, 0, count);
+            }
+            System.out.println("Loaded module calibration from " + m_file + " (saved " + calibration.savedAt + ")");
+        } catch (IOException e) {
+            DriverStation.reportError("Unable to read module calibration " + m_file + ", using defaults: " + e.getMessage(), false);
+        }
+        return true;
+    }
+
+    /**
+     * Writes new offsets to the file and starts using them. The file is replaced in one
+     * step so a reader never sees it half written.
+     * @return True if the file was written
+     */
+    public boolean save(double... offsetsDegrees) {
+        System.arraycopy(offsetsDegrees, 0, m_offsets, 0, Math.min(offsetsDegrees.length, m_offsets.length));
+
+        CalibrationFile calibration = new CalibrationFile();
+        calibration.angleOffsetsDegrees = m_offsets.clone();
+        calibration.savedAt = Instant.now().toString();
+
+        File temp = new File(m_file.getPath() + ".tmp");
+        try {
+            m_mapper.writerWithDefaultPrettyPrinter().writeValue(temp, calibration);
+            Files.move(temp.toPath(), m_file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            m_loadedModified = m_file.lastModified();
+            return true;
+        } catch (IOException e) {
+            DriverStation.reportError("Unable to save module calibration " + m_file + ": " + e.getMessage(), false);
+            return false;
+        }
+    }
+}
@@ -57,7 +57,7 @@ public class SmoothControl {
   }
 
   // Equation 14, Calculates the required turn rate
-  private double calculateK(double range, double theta, double delta) {
+  protected double calculateK(double range, double theta, double delta) {
     double retval = 0.0d;
     if(0.0d != range) {
       retval = (-(1 / range) * (K2 * (delta - Math.atan(-K1 * theta)) +
@@ -68,7 +68,7 @@ public class SmoothControl {
 
   // Equation 15, Calculates how close we are to maximum velocity based off of
   // required turn rate
-  private double vGivenK(double k, double vMax) {
+  protected double vGivenK(double k, double vMax) {
     double beta = 0.4d;
     double lambda = 2;
     return (vMax / (1 + Math.abs(Math.pow((beta * k), lambda))));
@@ -0,0 +1,183 @@
+package frc.robot.classes;
+
+/**
+ * Keeps per AprilTag state across camera frames so a tag that flickers out for a few
+ * frames is not forgotten. Each tag's tx/ty and robot space position are smoothed with
+ * an alpha-beta filter, which also estimates how fast they are changing so the tag can
+ * be predicted through short gaps, and each tag has a confidence that builds up with
+ * every detection and decays with time since it was last seen.
+ */
+public class TagTracker {
+    public static final int MAX_TAG_ID = 32;
+
+    /** Position and rate gains of the alpha-beta filter */
+    private static final double ALPHA = 0.5d;
+    private static final double BETA = 0.1d;
+    /** Fraction of the remaining confidence gained with each detection */
+    private static final double CONFIDENCE_GAIN = 0.35d;
+    /** Time constant of the confidence decay, in seconds */
+    private static final double CONFIDENCE_DECAY_SECONDS = 0.25d;
+    /** Longest gap a tag is predicted across, in seconds */
+    public static final double MAX_PREDICTION_SECONDS = 0.3d;
+    /** Gaps longer than this restart the filter instead of updating it, in seconds */
+    private static final double RESTART_SECONDS = 1.0d;
+
+    private final boolean[] m_tracked = new boolean[MAX_TAG_ID + 1];
+    private final long[] m_lastSeenMicros = new long[MAX_TAG_ID + 1];
+    private final double[] m_confidence = new double[MAX_TAG_ID + 1];
+    private final double[] m_tx = new double[MAX_TAG_ID + 1];
+    private final double[] m_ty = new double[MAX_TAG_ID + 1];
+    private final double[] m_txRate = new double[MAX_TAG_ID + 1];
+    private final double[] m_tyRate = new double[MAX_TAG_ID + 1];
+    private final double[] m_targetX = new double[MAX_TAG_ID + 1];
+    private final double[] m_targetY = new double[MAX_TAG_ID + 1];
+
+    /**
+     * Adds a detection of a tag.
+     * @param id The tag's fiducial ID
+     * @param tx Horizontal offset from crosshair to the tag, in degrees
+     * @param ty Vertical offset from crosshair to the tag, in degrees
+     * @param targetX The tag's robot space x position in meters, NaN if unknown
+     * @param targetY The tag's robot space y position in meters, NaN if unknown
+     * @param timestampMicros The frame's FPGA time, in microseconds
+     */
+    public void update(int id, double tx, double ty, double targetX, double targetY, long timestampMicros) {
+        if (id < 0 || id > MAX_TAG_ID) {
+            return;
+        }
+
+        double dt = (timestampMicros - m_lastSeenMicros[id]) * 1.0e-6;
+        if (!m_tracked[id] || dt > RESTART_SECONDS) {
+            m_tracked[id] = true;
+            m_lastSeenMicros[id] = timestampMicros;
+            m_confidence[id] = CONFIDENCE_GAIN;
+            m_tx[id] = tx;
+            m_ty[id] = ty;
+            m_txRate[id] = 0.0d;
+            m_tyRate[id] = 0.0d;
+            m_targetX[id] = Double.isNaN(targetX) ? 0.0d : targetX;
+            m_targetY[id] = Double.isNaN(targetY) ? 0.0d : targetY;
+            return;
+        }
+
+        if (dt <= 0.0d) {
+            // Same or older frame than the last update, nothing new to learn
+            return;
+        }
+
+        // Predict forward to this frame, then correct towards the measurement
+        double txResidual = tx - (m_tx[id] + m_txRate[id] * dt);
+        double tyResidual = ty - (m_ty[id] + m_tyRate[id] * dt);
+        m_tx[id] += m_txRate[id] * dt + ALPHA * txResidual;
+        m_ty[id] += m_tyRate[id] * dt + ALPHA * tyResidual;
+        m_txRate[id] += BETA * txResidual / dt;
+        m_tyRate[id] += BETA * tyResidual / dt;
+        if (!Double.isNaN(targetX) && !Double.isNaN(targetY)) {
+            m_targetX[id] += ALPHA * (targetX - m_targetX[id]);
+            m_targetY[id] += ALPHA * (targetY - m_targetY[id]);
+        }
+
+        double confidence = decay(m_confidence[id], m_lastSeenMicros[id], timestampMicros);
+        m_confidence[id] = confidence + CONFIDENCE_GAIN * (1.0d - confidence);
+        m_lastSeenMicros[id] = timestampMicros;
+    }
+
+    /**
+     * @return The tag with the highest confidence right now, or -1 if no tag is being tracked
+     */
+    public int getBestTag(long nowMicros) {
+        int best = -1;
+        double bestConfidence = 0.0d;
+        for (int id = 0; id <= MAX_TAG_ID; id++) {
+            double confidence = getConfidence(id, nowMicros);
+            if (confidence > bestConfidence) {
+                best = id;
+                bestConfidence = confidence;
+            }
+        }
+        return best;
+    }
+
+    public double getConfidence(int id, long nowMicros) {
+        if (id < 0 || id > MAX_TAG_ID || !m_tracked[id]) {
+            return 0.0d;
+        }
+        return decay(m_confidence[id], m_lastSeenMicros[id], nowMicros);
+    }
+
+    /**
+     * Captures a tag's state so it can be read from another thread.
+     * @return The tag's state, or null if it is not being tracked
+     */
+    public TrackedTag getTag(int id) {
+        if (id < 0 || id > MAX_TAG_ID || !m_tracked[id]) {
+            return null;
+        }
+        return new TrackedTag(id, m_lastSeenMicros[id], m_confidence[id], m_tx[id], m_ty[id],
+            m_txRate[id], m_tyRate[id], m_targetX[id], m_targetY[id]);
+    }
+
+    /**
+     * Confidence left after decaying since the tag was last seen.
+     */
+    public static double decay(double confidence, long lastSeenMicros, long nowMicros) {
+        double elapsed = Math.max(0.0d, (nowMicros - lastSeenMicros) * 1.0e-6);
+        return confidence * Math.exp(-elapsed / CONFIDENCE_DECAY_SECONDS);
+    }
+
+    /**
+     * Extrapolates a smoothed value from when the tag was last seen, holding it once the
+     * gap is too long to predict across.
+     */
+    public static double predict(double value, double rate, long lastSeenMicros, long nowMicros) {
+        double elapsed = Math.max(0.0d, (nowMicros - lastSeenMicros) * 1.0e-6);
+        return value + rate * Math.min(elapsed, MAX_PREDICTION_SECONDS);
+    }
+
+    /**
+     * Immutable copy of one tag's tracked state.
+     */
+    public static class TrackedTag {
+        public final int id;
+        public final long lastSeenMicros;
+        public final double confidence; // at lastSeenMicros
+        public final double tx;
+        public final double ty;
+        public final double txRate; // degrees per second
+        public final double tyRate; // degrees per second
+        public final double targetX; // robot space, meters
+        public final double targetY; // robot space, meters
+
+        public TrackedTag(int id, long lastSeenMicros, double confidence, double tx, double ty,
+                double txRate, double tyRate, double targetX, double targetY) {
+            this.id = id;
+            this.lastSeenMicros = lastSeenMicros;
+            this.confidence = confidence;
+            this.tx = tx;
+            this.ty = ty;
+            this.txRate = txRate;
+            this.tyRate = tyRate;
+            this.targetX = targetX;
+            this.targetY = targetY;
+        }
+
+        public double getConfidence(long nowMicros) {
+            return decay(confidence, lastSeenMicros, nowMicros);
+        }
+
+        public double predictTx(long nowMicros) {
+            return predict(tx, txRate, lastSeenMicros, nowMicros);
+        }
+
+        public double predictTy(long nowMicros) {
+            return predict(ty, tyRate, lastSeenMicros, nowMicros);
+        }
+
+        /**
+         * @return True if the tag was seen recently enough to predict where it is
+         */
+        public boolean isFresh(long nowMicros) {
+            return (nowMicros - lastSeenMicros) * 1.0e-6 <= MAX_PREDICTION_SECONDS;
+        }
+    }
+}
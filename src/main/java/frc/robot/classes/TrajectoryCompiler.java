@@ -0,0 +1,33 @@
+package frc.robot.classes;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import edu.wpi.first.apriltag.AprilTagFieldLayout;
+
+/**
+ * Build time entry point that compiles every auto route into the deploy directory, run by
+ * the compileTrajectories Gradle task. Runs on the development machine, so it must not
+ * touch anything that needs the robot's HAL.
+ */
+public final class TrajectoryCompiler {
+    private TrajectoryCompiler() {
+    }
+
+    /**
+     * @param args The deploy directory
+     */
+    public static void main(String[] args) throws IOException {
+        Path deployDirectory = Paths.get(args.length > 0 ? args[0] : "src/main/deploy");
+
+        double fieldLength = FieldLayout.DEFAULT_FIELD_LENGTH;
+        try {
+            fieldLength = new AprilTagFieldLayout(deployDirectory.resolve(FieldLayout.LAYOUT_FILE)).getFieldLength();
+        } catch (IOException e) {
+            System.err.println("Unable to load AprilTag layout, using the default field length: " + e.getMessage());
+        }
+
+        AutoRoutes.compile(deployDirectory.resolve(AutoRoutes.TRAJECTORY_DIRECTORY), fieldLength);
+    }
+}
@@ -0,0 +1,24 @@
+package frc.robot.classes;
+
+import java.util.Comparator;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * A vision observation that passed scoring, with the standard deviations it should be
+ * given to the pose estimator with.
+ */
+public class VisionMeasurement {
+    public static final Comparator<VisionMeasurement> BY_TIMESTAMP =
+        Comparator.comparingDouble(measurement -> measurement.observation.timestampSeconds);
+
+    public final VisionObservation observation;
+    public final Matrix<N3, N1> stdDevs;
+
+    public VisionMeasurement(VisionObservation observation, Matrix<N3, N1> stdDevs) {
+        this.observation = observation;
+        this.stdDevs = stdDevs;
+    }
+}
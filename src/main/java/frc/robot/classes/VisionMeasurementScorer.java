@@ -0,0 +1,106 @@
+package frc.robot.classes;
+
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.VecBuilder;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+
+/**
+ * Decides how much the pose estimator should trust each vision observation. Close,
+ * multi-tag, consistent observations get small standard deviations; far, single-tag
+ * or ambiguous ones get large ones, and observations that cannot be right are rejected.
+ */
+public class VisionMeasurementScorer {
+    /* Standard deviations of a single tag seen from 1 meter, they grow with distance squared */
+    private static final double BASE_XY_STD_DEV = 0.05d; // meters
+    private static final double BASE_THETA_STD_DEV = 0.1d; // radians
+    /** Heading from a single tag is too noisy to use */
+    private static final double SINGLE_TAG_THETA_STD_DEV = 1.0e3d;
+    /** Extra std dev per meter of ambiguity */
+    private static final double AMBIGUITY_WEIGHT = 4.0d;
+    /** Tags smaller than this (percent of image) are treated as proportionally noisier */
+    private static final double MIN_TRUSTED_AREA = 0.1d;
+
+    /* Rejection limits */
+    private static final double MAX_SINGLE_TAG_DISTANCE = 4.0d; // meters
+    private static final double MAX_MULTI_TAG_DISTANCE = 7.0d; // meters
+    private static final double MAX_AMBIGUITY = 0.5d; // meters
+    private static final double MAX_SINGLE_TAG_JUMP = 1.0d; // meters from the estimate
+    private static final double MAX_MULTI_TAG_JUMP = 2.5d; // meters from the estimate
+    /** After this many jump rejections in a row the estimate is assumed lost and vision is trusted again */
+    private static final int RELOCALIZE_AFTER_REJECTIONS = 15;
+    private static final double FIELD_MARGIN = 0.5d; // meters
+
+    private final double m_fieldLength = FieldLayout.getInstance().getFieldLength();
+    private final double m_fieldWidth = FieldLayout.getInstance().getFieldWidth();
+    private int m_consecutiveJumpRejections;
+    private long m_accepted;
+    private long m_rejected;
+
+    /**
+     * @param observation The observation to score
+     * @param estimatedPose The estimated pose when the observation's image was captured
+     * @return The observation's x, y and heading standard deviations, or null if it should be thrown out
+     */
+    public Matrix<N3, N1> score(VisionObservation observation, Pose2d estimatedPose) {
+        if (!isPlausible(observation, estimatedPose)) {
+            m_rejected++;
+            return null;
+        }
+        m_accepted++;
+
+        double distanceSquared = observation.averageTagDistance * observation.averageTagDistance;
+        double areaPenalty = observation.averageTagArea > 0.0d && observation.averageTagArea < MIN_TRUSTED_AREA
+            ? MIN_TRUSTED_AREA / observation.averageTagArea
+            : 1.0d;
+        double scale = distanceSquared * areaPenalty / observation.tagCount;
+
+        double xyStdDev = BASE_XY_STD_DEV * scale + AMBIGUITY_WEIGHT * observation.ambiguity;
+        double thetaStdDev = observation.tagCount > 1
+            ? BASE_THETA_STD_DEV * scale + AMBIGUITY_WEIGHT * observation.ambiguity
+            : SINGLE_TAG_THETA_STD_DEV;
+
+        return VecBuilder.fill(xyStdDev, xyStdDev, thetaStdDev);
+    }
+
+    private boolean isPlausible(VisionObservation observation, Pose2d estimatedPose) {
+        if (observation.tagCount <= 0) {
+            return false;
+        }
+
+        boolean multiTag = observation.tagCount > 1;
+        if (observation.averageTagDistance > (multiTag ? MAX_MULTI_TAG_DISTANCE : MAX_SINGLE_TAG_DISTANCE)) {
+            return false;
+        }
+
+        if (observation.ambiguity > MAX_AMBIGUITY) {
+            return false;
+        }
+
+        double x = observation.pose.getX();
+        double y = observation.pose.getY();
+        if (x < -FIELD_MARGIN || x > m_fieldLength + FIELD_MARGIN || y < -FIELD_MARGIN || y > m_fieldWidth + FIELD_MARGIN) {
+            return false;
+        }
+
+        double jump = observation.pose.getTranslation().getDistance(estimatedPose.getTranslation());
+        if (jump > (multiTag ? MAX_MULTI_TAG_JUMP : MAX_SINGLE_TAG_JUMP)) {
+            m_consecutiveJumpRejections++;
+            if (m_consecutiveJumpRejections < RELOCALIZE_AFTER_REJECTIONS) {
+                return false;
+            }
+        }
+
+        m_consecutiveJumpRejections = 0;
+        return true;
+    }
+
+    public long getAccepted() {
+        return m_accepted;
+    }
+
+    public long getRejected() {
+        return m_rejected;
+    }
+}
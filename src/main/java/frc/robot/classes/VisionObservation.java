@@ -0,0 +1,36 @@
+package frc.robot.classes;
+
+import java.util.Comparator;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+/**
+ * A field space robot pose seen by one camera, ready to hand to
+ * SwerveDrivePoseEstimator.addVisionMeasurement.
+ */
+public class VisionObservation {
+    public static final Comparator<VisionObservation> BY_TIMESTAMP =
+        Comparator.comparingDouble(observation -> observation.timestampSeconds);
+
+    public final int cameraIndex;
+    public final Pose2d pose; // wpiblue field space
+    public final double timestampSeconds; // FPGA time the image was captured
+    public final double latencyMs;
+
+    public final int tagCount;
+    public final double averageTagDistance; // meters from the camera
+    public final double averageTagArea; // percent of the image
+    public final double ambiguity; // meters of disagreement between the tags' robot poses
+
+    public VisionObservation(int cameraIndex, Pose2d pose, double timestampSeconds, double latencyMs,
+            int tagCount, double averageTagDistance, double averageTagArea, double ambiguity) {
+        this.cameraIndex = cameraIndex;
+        this.pose = pose;
+        this.timestampSeconds = timestampSeconds;
+        this.latencyMs = latencyMs;
+        this.tagCount = tagCount;
+        this.averageTagDistance = averageTagDistance;
+        this.averageTagArea = averageTagArea;
+        this.ambiguity = ambiguity;
+    }
+}
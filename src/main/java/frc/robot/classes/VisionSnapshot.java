@@ -0,0 +1,28 @@
+package frc.robot.classes;
+
+import frc.robot.classes.TagTracker.TrackedTag;
+
+/**
+ * The primary camera's targeting state after the vision thread's most recent frame.
+ * Immutable, so the control loop can read it while the vision thread builds the next.
+ */
+public class VisionSnapshot {
+    public static final VisionSnapshot EMPTY = new VisionSnapshot(false, 0.0d, 0.0d, 0.0d, null, 0);
+
+    public final boolean hasTarget;
+    public final double tx; // horizontal offset from crosshair to target
+    public final double ty; // vertical offset from crosshair to target
+    public final double distanceToGoal; // in inches
+    public final TrackedTag trackedTag; // the most confident tracked tag, null if none
+    public final long frameTimestampMicros; // local (FPGA) time of the frame
+
+    public VisionSnapshot(boolean hasTarget, double tx, double ty, double distanceToGoal, TrackedTag trackedTag,
+            long frameTimestampMicros) {
+        this.hasTarget = hasTarget;
+        this.tx = tx;
+        this.ty = ty;
+        this.distanceToGoal = distanceToGoal;
+        this.trackedTag = trackedTag;
+        this.frameTimestampMicros = frameTimestampMicros;
+    }
+}
@@ -1,65 +1,81 @@
 package frc.robot.commands;
 
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
-import edu.wpi.first.math.geometry.Rotation2d;
-import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
-import frc.robot.classes.Position2D;
+import frc.lib.util.HolonomicController;
+import frc.lib.util.SwerveConstants.AutoConstants;
+import frc.robot.classes.TagTracker.TrackedTag;
 import frc.robot.subsystems.Drivetrain;
 import frc.robot.subsystems.LimelightInterface;
 
+/**
+ * Drives onto the scoring pose in front of the tracked AprilTag. The goal and the robot
+ * are both field space poses, so the error is measured in one frame; vision corrects the
+ * robot's pose through the pose estimator while the controller drives. Gives up after a
+ * timeout, and reports how long alignment took so it can be tuned against a bound.
+ */
 public class AutoAlign extends CommandBase {
-    private double m_linearP;
-    private double m_linearI;
-    private double m_linearD;
-    private double m_angularP;
-    private double m_angularI;
-    private double m_angularD;
-    private double m_angularErrorSum;
-    private double m_linearErrorSum;
-    private double m_lastAngularError;
-    private double m_lastLinearError;
-    private LimelightInterface m_limelight;
-    private Drivetrain m_drivetrain;
-    private SwerveDrivePoseEstimator m_estimator;
-    public AutoAlign(LimelightInterface limelight, Drivetrain drivetrain, SwerveDrivePoseEstimator estimator) {
+    private final LimelightInterface m_limelight;
+    private final Drivetrain m_drivetrain;
+    private final HolonomicController m_controller = new HolonomicController(
+        AutoConstants.kAlignTranslationGains,
+        AutoConstants.kAlignTranslationGains,
+        AutoConstants.kAlignThetaGains,
+        AutoConstants.kAlignMaxSpeedMetersPerSecond,
+        AutoConstants.kMaxAngularSpeedRadiansPerSecond,
+        AutoConstants.kAlignPositionTolerance,
+        AutoConstants.kAlignHeadingTolerance);
+
+    private Pose2d m_goal;
+    private double m_startTime;
+    private double m_lastTime;
+
+    public AutoAlign(LimelightInterface limelight, Drivetrain drivetrain) {
         m_limelight = limelight;
         m_drivetrain = drivetrain;
-        m_estimator = estimator;
         addRequirements(limelight, drivetrain);
+    }
 
-        m_linearP = 0.0d;
-        m_linearI = 0.0d;
-        m_linearD = 0.0d;
-        m_angularP = 0.0d;
-        m_angularI = 0.0d;
-        m_angularD = 0.0d;
+    @Override
+    public void initialize() {
+        // No goal if nothing is tracked or the tag is not in the field layout, which ends the command
+        TrackedTag tag = m_limelight.getTrackedTag();
+        m_goal = m_limelight.hasTarget() && tag != null ? m_limelight.getScoringPose(tag.id) : null;
+
+        m_controller.reset();
+        m_startTime = Timer.getFPGATimestamp();
+        m_lastTime = m_startTime;
     }
 
     @Override
     public void execute() {
-        Pose2d currentPose = m_estimator.getEstimatedPosition();
-        Pose2d targetPose = m_limelight.getTargetPose();
+        if (m_goal == null) {
+            return;
+        }
+
+        double now = Timer.getFPGATimestamp();
+        m_drivetrain.drive(m_controller.calculate(m_drivetrain.getPose(), m_goal, now - m_lastTime), false);
+        m_lastTime = now;
 
-        double targetHeading = targetPose.getRotation().getDegrees();
-        if (targetHeading > Math.PI) {
-            targetHeading -= 2 * Math.PI;
-        } else if (targetHeading < -Math.PI) {
-            targetHeading += 2 * Math.PI;
+        SmartDashboard.putNumber("AutoAlign Position Error", m_controller.getPositionError());
+        SmartDashboard.putNumber("AutoAlign Heading Error", Math.toDegrees(m_controller.getHeadingError()));
+    }
+
+    @Override
+    public boolean isFinished() {
+        return m_goal == null
+            || m_controller.atReference()
+            || Timer.getFPGATimestamp() - m_startTime >= AutoConstants.kAlignTimeoutSeconds;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        m_drivetrain.stop();
+        if (m_goal != null) {
+            SmartDashboard.putNumber("AutoAlign Time", Timer.getFPGATimestamp() - m_startTime);
+            SmartDashboard.putBoolean("AutoAlign Converged", m_controller.atReference());
         }
-        double angularError = targetHeading - currentPose.getRotation().getDegrees();
-        double linearError = m_limelight.getDistance() - currentPose.getTranslation().getNorm();
-        double angularErrorDelta = angularError - m_lastAngularError;
-        double linearErrorDelta = linearError - m_lastLinearError;
-        m_angularErrorSum += angularError;
-        m_linearErrorSum += linearError;
-        double angularCommand = (m_angularP * angularError) + (m_angularI * m_angularErrorSum) + (m_angularD * angularErrorDelta);
-        double linearCommand = (m_linearP * linearError) + (m_linearI * m_linearErrorSum) + (m_linearD * linearErrorDelta);
-        m_lastAngularError = angularError;
-        m_lastLinearError = linearError;
-        // Make the drivetrain drive towards the target
-        Translation2d translation = new Translation2d(linearCommand, 0.0d);
-        m_drivetrain.drive(translation, angularCommand, false, true);
     }
 }
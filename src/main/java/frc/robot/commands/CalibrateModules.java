@@ -0,0 +1,32 @@
+package frc.robot.commands;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ * Saves the current swerve module angles as their forward offsets. Line every wheel up
+ * straight forward with the robot disabled, then run this from the dashboard.
+ */
+public class CalibrateModules extends CommandBase {
+    private final Drivetrain m_drivetrain;
+
+    public CalibrateModules(Drivetrain drivetrain) {
+        m_drivetrain = drivetrain;
+        addRequirements(m_drivetrain);
+    }
+
+    @Override
+    public void initialize() {
+        m_drivetrain.calibrateModules();
+    }
+
+    @Override
+    public boolean isFinished() {
+        return true;
+    }
+
+    @Override
+    public boolean runsWhenDisabled() {
+        return true;
+    }
+}
@@ -0,0 +1,181 @@
+package frc.robot.commands;
+
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.trajectory.TrapezoidProfile;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.lib.util.HolonomicController;
+import frc.lib.util.SwerveConstants.AutoConstants;
+import frc.robot.classes.FieldLayout;
+import frc.robot.classes.TagTracker.TrackedTag;
+import frc.robot.subsystems.Drivetrain;
+import frc.robot.subsystems.LimelightInterface;
+
+/**
+ * Drives in a straight line from the robot's estimated pose to the scoring pose in front
+ * of the tracked AprilTag, turning to face it on the way. The path is a trapezoidal
+ * profile along the line plus one for the heading, both within the drivetrain's limits,
+ * so generating it is a handful of arithmetic and can be redone whenever vision moves the
+ * goal. The holonomic controller follows the profile with its velocity fed forward.
+ */
+public class DriveToTag extends CommandBase {
+    private final Drivetrain m_drivetrain;
+    private final LimelightInterface m_limelight;
+    private final FieldLayout m_fieldLayout = FieldLayout.getInstance();
+    private final HolonomicController m_controller = new HolonomicController(
+        AutoConstants.kAlignTranslationGains,
+        AutoConstants.kAlignTranslationGains,
+        AutoConstants.kAlignThetaGains,
+        AutoConstants.kMaxSpeedMetersPerSecond,
+        AutoConstants.kMaxAngularSpeedRadiansPerSecond,
+        AutoConstants.kAlignPositionTolerance,
+        AutoConstants.kAlignHeadingTolerance);
+    private final TrapezoidProfile.Constraints m_translationConstraints = new TrapezoidProfile.Constraints(
+        AutoConstants.kMaxSpeedMetersPerSecond, AutoConstants.kMaxAccelerationMetersPerSecondSquared);
+
+    private int m_tagId;
+    private Pose2d m_goal;
+
+    /* The current path, starting at m_pathStartTime */
+    private double m_pathStartTime;
+    private double m_startX;
+    private double m_startY;
+    private double m_directionX; // unit vector from the start to the goal
+    private double m_directionY;
+    private double m_startHeading; // radians
+    private TrapezoidProfile m_translationProfile;
+    private TrapezoidProfile m_headingProfile;
+
+    /* Reference from the last loop, the next path starts moving like this */
+    private double m_referenceVx;
+    private double m_referenceVy;
+    private double m_referenceOmega;
+
+    private double m_startTime;
+    private double m_lastTime;
+    private int m_replans;
+
+    public DriveToTag(Drivetrain drivetrain, LimelightInterface limelight) {
+        m_drivetrain = drivetrain;
+        m_limelight = limelight;
+        addRequirements(m_drivetrain);
+    }
+
+    @Override
+    public void initialize() {
+        m_startTime = Timer.getFPGATimestamp();
+        m_lastTime = m_startTime;
+        m_replans = 0;
+        m_referenceVx = 0.0;
+        m_referenceVy = 0.0;
+        m_referenceOmega = 0.0;
+        m_controller.reset();
+
+        // Only tags in the field layout have a scoring pose to drive to
+        TrackedTag tag = m_limelight.getTrackedTag();
+        if (!m_limelight.hasTarget() || tag == null || !m_fieldLayout.hasTag(tag.id)) {
+            m_goal = null;
+            return;
+        }
+
+        m_tagId = tag.id;
+        m_goal = m_limelight.getScoringPose(m_tagId);
+        generate(m_drivetrain.getPose(), m_startTime);
+    }
+
+    @Override
+    public void execute() {
+        if (m_goal == null) {
+            return;
+        }
+
+        double now = Timer.getFPGATimestamp();
+        Pose2d pose = m_drivetrain.getPose();
+
+        // Start a new path if vision moved the goal far enough to matter
+        TrackedTag tag = m_limelight.getTrackedTag();
+        if (tag != null && tag.id == m_tagId && m_limelight.hasTarget() && m_fieldLayout.hasTag(m_tagId)) {
+            Pose2d goal = m_limelight.getScoringPose(m_tagId);
+            double moved = goal.getTranslation().getDistance(m_goal.getTranslation());
+            double turned = Math.abs(MathUtil.angleModulus(goal.getRotation().getRadians() - m_goal.getRotation().getRadians()));
+            if (moved > AutoConstants.kDriveToTagReplanDistance || turned > AutoConstants.kDriveToTagReplanAngle) {
+                m_goal = goal;
+                generate(pose, now);
+                m_replans++;
+            }
+        }
+
+        // Reference along the path
+        double t = now - m_pathStartTime;
+        TrapezoidProfile.State translation = m_translationProfile.calculate(t);
+        TrapezoidProfile.State heading = m_headingProfile.calculate(t);
+        Pose2d reference = new Pose2d(
+            m_startX + m_directionX * translation.position,
+            m_startY + m_directionY * translation.position,
+            new Rotation2d(m_startHeading + heading.position));
+        m_referenceVx = m_directionX * translation.velocity;
+        m_referenceVy = m_directionY * translation.velocity;
+        m_referenceOmega = heading.velocity;
+
+        m_drivetrain.drive(m_controller.calculate(pose, reference, m_referenceVx, m_referenceVy, m_referenceOmega,
+            now - m_lastTime), false);
+        m_lastTime = now;
+    }
+
+    /**
+     * Plans a straight line from the pose to the goal, starting at the reference's current
+     * velocity along the new line so a replan does not jerk the robot.
+     */
+    private void generate(Pose2d pose, double now) {
+        long start = System.nanoTime();
+
+        double dx = m_goal.getX() - pose.getX();
+        double dy = m_goal.getY() - pose.getY();
+        double distance = Math.hypot(dx, dy);
+        m_startX = pose.getX();
+        m_startY = pose.getY();
+        m_directionX = distance > 1e-6 ? dx / distance : 0.0;
+        m_directionY = distance > 1e-6 ? dy / distance : 0.0;
+        double startVelocity = Math.max(0.0, m_referenceVx * m_directionX + m_referenceVy * m_directionY);
+        m_translationProfile = new TrapezoidProfile(m_translationConstraints,
+            new TrapezoidProfile.State(distance, 0.0),
+            new TrapezoidProfile.State(0.0, Math.min(startVelocity, m_translationConstraints.maxVelocity)));
+
+        // Heading is profiled as a turn from the current heading, the short way around
+        m_startHeading = pose.getRotation().getRadians();
+        double turn = MathUtil.angleModulus(m_goal.getRotation().getRadians() - m_startHeading);
+        m_headingProfile = new TrapezoidProfile(AutoConstants.kThetaControllerConstraints,
+            new TrapezoidProfile.State(turn, 0.0),
+            new TrapezoidProfile.State(0.0, MathUtil.clamp(m_referenceOmega,
+                -AutoConstants.kThetaControllerConstraints.maxVelocity, AutoConstants.kThetaControllerConstraints.maxVelocity)));
+
+        m_pathStartTime = now;
+        SmartDashboard.putNumber("DriveToTag Generate ms", (System.nanoTime() - start) * 1e-6);
+    }
+
+    @Override
+    public boolean isFinished() {
+        if (m_goal == null) {
+            return true;
+        }
+
+        double now = Timer.getFPGATimestamp();
+        double pathTime = Math.max(m_translationProfile.totalTime(), m_headingProfile.totalTime());
+        boolean pathDone = now - m_pathStartTime >= pathTime;
+        return (pathDone && m_controller.atReference())
+            || now - m_pathStartTime >= pathTime + AutoConstants.kAlignTimeoutSeconds;
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        m_drivetrain.stop();
+        if (m_goal != null) {
+            SmartDashboard.putNumber("DriveToTag Time", Timer.getFPGATimestamp() - m_startTime);
+            SmartDashboard.putNumber("DriveToTag Replans", m_replans);
+            SmartDashboard.putBoolean("DriveToTag Converged", m_controller.atReference());
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package frc.robot.commands;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.lib.util.HolonomicController;
+import frc.lib.util.SwerveConstants.AutoConstants;
+import frc.lib.util.SwerveTrajectory;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ * Drives a precomputed trajectory: the trajectory's velocity is fed forward and the
+ * holonomic controller pulls the robot back onto it. Each loop only samples the
+ * trajectory at the time since the command started.
+ */
+public class FollowTrajectory extends CommandBase {
+    private final Drivetrain m_drivetrain;
+    private final SwerveTrajectory m_trajectory;
+    private final SwerveTrajectory.State m_reference = new SwerveTrajectory.State();
+    private final HolonomicController m_controller = new HolonomicController(
+        AutoConstants.kXGains,
+        AutoConstants.kYGains,
+        AutoConstants.kThetaGains,
+        AutoConstants.kMaxSpeedMetersPerSecond,
+        AutoConstants.kMaxAngularSpeedRadiansPerSecond,
+        AutoConstants.kWaypointPositionTolerance,
+        AutoConstants.kWaypointHeadingTolerance);
+    private double m_startTime;
+    private double m_lastTime;
+
+    public FollowTrajectory(Drivetrain drivetrain, SwerveTrajectory trajectory) {
+        m_drivetrain = drivetrain;
+        m_trajectory = trajectory;
+        addRequirements(m_drivetrain);
+    }
+
+    @Override
+    public void initialize() {
+        m_controller.reset();
+        m_startTime = Timer.getFPGATimestamp();
+        m_lastTime = m_startTime;
+    }
+
+    @Override
+    public void execute() {
+        double now = Timer.getFPGATimestamp();
+        m_trajectory.sample(now - m_startTime, m_reference);
+        Pose2d reference = new Pose2d(m_reference.x, m_reference.y, new Rotation2d(m_reference.heading));
+
+        m_drivetrain.drive(m_controller.calculate(m_drivetrain.getPose(), reference,
+            m_reference.vx, m_reference.vy, m_reference.omega, now - m_lastTime), false);
+        m_lastTime = now;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return Timer.getFPGATimestamp() - m_startTime >= m_trajectory.getDuration();
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        m_drivetrain.stop();
+    }
+}
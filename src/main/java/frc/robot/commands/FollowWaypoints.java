@@ -0,0 +1,85 @@
+package frc.robot.commands;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import frc.lib.util.SwerveConstants;
+import frc.lib.util.SwerveConstants.AutoConstants;
+import frc.robot.classes.HolonomicSmoothControl;
+import frc.robot.classes.Position2D;
+import frc.robot.subsystems.Drivetrain;
+
+/**
+ * Drives a route of field relative waypoints with the holonomic smooth control law,
+ * rounding intermediate waypoints at speed and stopping on the last one at its heading.
+ */
+public class FollowWaypoints extends CommandBase {
+    private final Drivetrain m_drivetrain;
+    private final Position2D[] m_waypoints;
+    private final HolonomicSmoothControl m_controller;
+    private double m_lastTime;
+
+    /**
+     * @param drivetrain The drivetrain
+     * @param maxVelocity Fastest to drive, in meters per second
+     * @param waypoints The route, in meters and radians
+     */
+    public FollowWaypoints(Drivetrain drivetrain, double maxVelocity, Position2D... waypoints) {
+        m_drivetrain = drivetrain;
+        m_waypoints = waypoints;
+        m_controller = new HolonomicSmoothControl(
+            maxVelocity,
+            AutoConstants.kMaxAccelerationMetersPerSecondSquared,
+            AutoConstants.kMaxAngularSpeedRadiansPerSecond,
+            AutoConstants.kPXController,
+            AutoConstants.kPThetaController,
+            AutoConstants.kWaypointPassRadius,
+            AutoConstants.kWaypointCaptureRadius);
+        addRequirements(m_drivetrain);
+    }
+
+    public FollowWaypoints(Drivetrain drivetrain, Position2D... waypoints) {
+        this(drivetrain, AutoConstants.kMaxSpeedMetersPerSecond, waypoints);
+    }
+
+    @Override
+    public void initialize() {
+        Pose2d pose = m_drivetrain.getPose();
+
+        // Carry on from however the robot is already moving
+        ChassisSpeeds measured = SwerveConstants.Swerve.swerveKinematics.toChassisSpeeds(m_drivetrain.getModuleStates());
+        Translation2d fieldVelocity = new Translation2d(measured.vxMetersPerSecond, measured.vyMetersPerSecond)
+            .rotateBy(pose.getRotation());
+
+        m_controller.start(pose, fieldVelocity, m_waypoints);
+        m_lastTime = Timer.getFPGATimestamp();
+    }
+
+    @Override
+    public void execute() {
+        double now = Timer.getFPGATimestamp();
+        Pose2d pose = m_drivetrain.getPose();
+        ChassisSpeeds fieldSpeeds = m_controller.calculate(pose, now - m_lastTime);
+        m_lastTime = now;
+
+        m_drivetrain.drive(ChassisSpeeds.fromFieldRelativeSpeeds(
+            fieldSpeeds.vxMetersPerSecond,
+            fieldSpeeds.vyMetersPerSecond,
+            fieldSpeeds.omegaRadiansPerSecond,
+            pose.getRotation()), false);
+    }
+
+    @Override
+    public boolean isFinished() {
+        return m_controller.atGoal(m_drivetrain.getPose(),
+            AutoConstants.kWaypointPositionTolerance,
+            AutoConstants.kWaypointHeadingTolerance);
+    }
+
+    @Override
+    public void end(boolean interrupted) {
+        m_drivetrain.stop();
+    }
+}
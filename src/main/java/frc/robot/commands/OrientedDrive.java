@@ -25,7 +25,7 @@ public class OrientedDrive extends CommandBase {
     private final boolean m_fieldOriented;
 
     private final double MAX_TRANSLATION_VELOCITY = 3.0d;
-    private final double MAX_ROTATION_VELOCITY_RAD = 0.15d;
+    private final double MAX_ROTATION_VELOCITY_RAD = Math.PI;
 
     public OrientedDrive(Drivetrain drivetrain, SpikeController controller, boolean fieldOriented) {
         m_drivetrain = drivetrain;
@@ -48,8 +48,9 @@ public class OrientedDrive extends CommandBase {
 
         Translation2d robotTranslation = new Translation2d(translationMagnitude, translationAngle);
 
-        // Implement rotation, currently broken
+        // Right stick pushed right turns clockwise
+        double rotationSpeed = -m_controller.getRightX() * MAX_ROTATION_VELOCITY_RAD;
 
-        m_drivetrain.drive(robotTranslation, 0, m_fieldOriented, true);
+        m_drivetrain.drive(robotTranslation, rotationSpeed, m_fieldOriented, true);
     }
 }
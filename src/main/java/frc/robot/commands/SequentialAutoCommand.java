@@ -1,7 +1,13 @@
 package frc.robot.commands;
 
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.InstantCommand;
 import edu.wpi.first.wpilibj2.command.SequentialCommandGroup;
+import frc.lib.util.SwerveTrajectory;
 import frc.robot.RobotContainer;
+import frc.robot.classes.AutoRoutes;
+import frc.robot.classes.Position2D;
 import frc.robot.subsystems.Drivetrain;
 
 public class SequentialAutoCommand extends SequentialCommandGroup {
@@ -23,5 +29,14 @@ public class SequentialAutoCommand extends SequentialCommandGroup {
 		m_startPosition = startPosition;
 
 		// Put in commands here
+		// The route was generated at startup, only look it up for this alliance
+		SwerveTrajectory trajectory = AutoRoutes.get(m_startPosition, DriverStation.getAlliance());
+		if (trajectory != null) {
+			Pose2d start = trajectory.getInitialPose();
+			addCommands(
+				new InstantCommand(() -> m_drivetrain.initAutonomous(
+					new Position2D(start.getX(), start.getY(), start.getRotation().getRadians()))),
+				new FollowTrajectory(m_drivetrain, trajectory));
+		}
 	}
-}
\ No newline at end of file
+}
@@ -14,68 +14,251 @@ package frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+import frc.lib.util.Conversions;
+import frc.lib.util.DeviceConfigurator;
+import frc.lib.util.OdometrySampleBuffer;
+import frc.lib.util.PoseHistory;
+import frc.lib.util.SecondOrderSwerveKinematics;
 import frc.lib.util.SwerveConstants;
+import frc.lib.util.SwerveSetpointGenerator;
+import frc.lib.util.SwerveSlipDetector;
+import frc.robot.NavXGyro;
 import frc.robot.SwerveModule;
+import frc.robot.SwerveSignals;
+import frc.robot.classes.ModuleCalibration;
 import frc.robot.classes.Position2D;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.kauailabs.navx.frc.AHRS;
 
+import edu.wpi.first.math.MathUtil;
+import edu.wpi.first.math.Matrix;
+import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Notifier;
 import edu.wpi.first.wpilibj.SerialPort;
 import edu.wpi.first.wpilibj.Timer;
 
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
 import edu.wpi.first.math.kinematics.SwerveDriveKinematics;
-import edu.wpi.first.math.kinematics.SwerveDriveOdometry;
 import edu.wpi.first.math.kinematics.SwerveModulePosition;
 import edu.wpi.first.math.kinematics.SwerveModuleState; 
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
 
 public class Drivetrain extends SubsystemBase {
-    public SwerveDriveOdometry m_swerveOdometry;
+    private static final double STARTUP_TIMEOUT_SECONDS = 2.0d; // per startup batch
+    private static final int CALIBRATION_CHECK_LOOPS = 50; // how often to look for a changed calibration file
+    private static final double ODOMETRY_PERIOD_SECONDS = 0.005d; // 200 Hz
+    private static final int ODOMETRY_BUFFER_SIZE = 64; // samples, about 0.3 s at 200 Hz
+    private static final double COLLISION_ACCEL_G = 1.0d; // more than the wheels can push, so something hit us
+    private static final double COLLISION_HOLD_SECONDS = 0.25d; // how long odometry stays suspect after a hit
+    private static final int POSE_HISTORY_SIZE = 300; // samples, 1.5 s at 200 Hz like the estimator's own buffer
+    private static final int YAW_HISTORY_SIZE = 200; // NavX frames, at least 1.5 s at its update rate
+
+    // The single source of truth for where the robot is: wheel odometry and gyro, corrected by vision
+    private final SwerveDrivePoseEstimator m_poseEstimator;
+    private final PoseHistory m_poseHistory = new PoseHistory(POSE_HISTORY_SIZE);
     public SwerveModule[] m_swerveModules;
+    private final SwerveSignals m_signals = new SwerveSignals(4); // one drive motor, angle motor and CANCoder per module
     public final AHRS gyro;
+    private final NavXGyro m_gyro; // timestamped yaw, read through this instead of the AHRS
+
+    // Module angle offsets, saved on the roboRIO so they can change without a redeploy
+    private final ModuleCalibration m_calibration;
+    private boolean m_calibrationPending;
+    private int m_calibrationCounter;
+
+    // Samples taken by the odometry thread, drained into odometry by periodic()
+    private final OdometrySampleBuffer m_odometryBuffer;
+    private final Notifier m_odometryThread;
+
+    /* Owned by the odometry thread */
+    private final double[] m_sampleDistances;
+    private final double[] m_sampleAngles;
+
+    /* Owned by the main loop, reused every drain */
+    private final double[] m_drainTimestamps = new double[ODOMETRY_BUFFER_SIZE];
+    private final double[] m_drainYaws = new double[ODOMETRY_BUFFER_SIZE];
+    private final double[][] m_drainDistances;
+    private final double[][] m_drainAngles;
+    private final SwerveModulePosition[] m_drainPositions;
+    private final double[] m_drainLastAngles;
+
+    // Wheel deltas are checked for slip before they reach the estimator, which integrates corrected distances
+    private final SwerveSlipDetector m_slipDetector = new SwerveSlipDetector(SwerveConstants.Swerve.moduleTranslations);
+    private final double[] m_rawDistances;
+    private final double[] m_correctedDistances;
+    private final double[] m_distanceDeltas;
+    private double m_lastSampleTime = Double.NaN;
+    private double m_lastSampleYaw;
+    private double m_collisionUntil;
+    private boolean m_colliding;
+    private long m_collisions;
+    private final String[] m_slipKeys;
+
+    /* Each module's state and position from the latest sampleModules(), filled in place */
+    private final SwerveModuleState[] m_moduleStates;
+    private final SwerveModulePosition[] m_modulePositions;
+    private final String[] m_cancoderKeys;
+    private final String[] m_angleKeys;
+    private final String[] m_speedKeys;
+
+    // Limits how fast each drive command can change from the last one
+    private final SwerveSetpointGenerator m_setpointGenerator = new SwerveSetpointGenerator(
+        SwerveConstants.Swerve.maxSpeed,
+        SwerveConstants.Swerve.maxModuleAcceleration,
+        SwerveConstants.Swerve.maxModuleSteerVelocity,
+        SwerveConstants.Swerve.moduleTranslations);
+
+    /* Reused by drive() */
+    private final SwerveModuleState[] m_desiredStates;
+    private final double[] m_steerRates;
+    private ChassisSpeeds m_lastSpeeds = new ChassisSpeeds();
+    private double m_lastDriveTime = Double.NaN;
+    private boolean m_driveSetpointStale; // setModuleStates() drove since the last drive()
 
     public Drivetrain() {
         gyro = new AHRS(SerialPort.Port.kMXP);
         gyro.reset();
+        m_gyro = new NavXGyro(gyro, YAW_HISTORY_SIZE);
+        m_gyro.sample(Timer.getFPGATimestamp());
 
         // Create modules from the constant values in SwerveConstants
         m_swerveModules = new SwerveModule[] {
-            new SwerveModule(0, SwerveConstants.Swerve.Mod0.constants),
-            new SwerveModule(1, SwerveConstants.Swerve.Mod1.constants),
-            new SwerveModule(2, SwerveConstants.Swerve.Mod2.constants),
-            new SwerveModule(3, SwerveConstants.Swerve.Mod3.constants)
+            new SwerveModule(0, SwerveConstants.Swerve.Mod0.constants, m_signals),
+            new SwerveModule(1, SwerveConstants.Swerve.Mod1.constants, m_signals),
+            new SwerveModule(2, SwerveConstants.Swerve.Mod2.constants, m_signals),
+            new SwerveModule(3, SwerveConstants.Swerve.Mod3.constants, m_signals)
         };
 
-        // By pausing init for a second before setting module offsets, we avoid a bug with inverting motors
-        Timer.delay(1.0);
-        resetModulesToAbsolute();
+        m_calibration = new ModuleCalibration(ModuleCalibration.DEFAULT_FILE,
+            SwerveConstants.Swerve.Mod0.angleOffset.getDegrees(),
+            SwerveConstants.Swerve.Mod1.angleOffset.getDegrees(),
+            SwerveConstants.Swerve.Mod2.angleOffset.getDegrees(),
+            SwerveConstants.Swerve.Mod3.angleOffset.getDegrees());
+        for (SwerveModule module : m_swerveModules) {
+            module.setAngleOffset(Rotation2d.fromDegrees(m_calibration.getAngleOffset(module.m_moduleNumber)));
+        }
+
+        // Configure all 12 devices at once, then seed the angle motors as soon as each CANCoder reports
+        double startTime = Timer.getFPGATimestamp();
+        DeviceConfigurator configurator = new DeviceConfigurator(STARTUP_TIMEOUT_SECONDS);
+        for (SwerveModule module : m_swerveModules) {
+            module.addConfigSteps(configurator);
+        }
+        boolean configured = configurator.run();
+        for (SwerveModule module : m_swerveModules) {
+            module.addSeedStep(configurator, STARTUP_TIMEOUT_SECONDS);
+        }
+        boolean seeded = configurator.run();
+        for (SwerveModule module : m_swerveModules) {
+            module.finishInit();
+        }
+        double startupMs = (Timer.getFPGATimestamp() - startTime) * 1000.0;
+        SmartDashboard.putNumber("Startup/Drivetrain ms", startupMs);
+        System.out.println(String.format("Drivetrain ready in %.1f ms%s", startupMs,
+            configured && seeded ? "" : ", some devices failed to configure"));
+
+        m_desiredStates = new SwerveModuleState[m_swerveModules.length];
+        m_steerRates = new double[m_swerveModules.length];
+        for (int i = 0; i < m_desiredStates.length; i++) {
+            m_desiredStates[i] = new SwerveModuleState();
+        }
 
-        // Create a new swerve odometry object, similar to the Kinematics.java file before 
-        m_swerveOdometry = new SwerveDriveOdometry(SwerveConstants.Swerve.swerveKinematics, getYaw(), getModulePositions());
+        m_moduleStates = new SwerveModuleState[m_swerveModules.length];
+        m_modulePositions = new SwerveModulePosition[m_swerveModules.length];
+        m_cancoderKeys = new String[m_swerveModules.length];
+        m_angleKeys = new String[m_swerveModules.length];
+        m_speedKeys = new String[m_swerveModules.length];
+        for (SwerveModule module : m_swerveModules) {
+            m_moduleStates[module.m_moduleNumber] = module.getState();
+            m_modulePositions[module.m_moduleNumber] = module.getPosition();
+            m_cancoderKeys[module.m_moduleNumber] = "Mod " + module.m_moduleNumber + " Cancoder";
+            m_angleKeys[module.m_moduleNumber] = "Mod " + module.m_moduleNumber + " Angle";
+            m_speedKeys[module.m_moduleNumber] = "Mod " + module.m_moduleNumber + " Meters/Sec";
+        }
+        sampleModules();
+
+        // Create the pose estimator, it does the same odometry as SwerveDriveOdometry and also takes vision
+        m_poseEstimator = new SwerveDrivePoseEstimator(SwerveConstants.Swerve.swerveKinematics, getYaw(), getModulePositions(), new Pose2d());
+
+        int moduleCount = m_swerveModules.length;
+        m_sampleDistances = new double[moduleCount];
+        m_sampleAngles = new double[moduleCount];
+        m_drainDistances = new double[ODOMETRY_BUFFER_SIZE][moduleCount];
+        m_drainAngles = new double[ODOMETRY_BUFFER_SIZE][moduleCount];
+        m_drainPositions = new SwerveModulePosition[moduleCount];
+        m_drainLastAngles = new double[moduleCount];
+        m_rawDistances = new double[moduleCount];
+        m_correctedDistances = new double[moduleCount];
+        m_distanceDeltas = new double[moduleCount];
+        m_slipKeys = new String[moduleCount];
+        for (int i = 0; i < moduleCount; i++) {
+            m_drainPositions[i] = new SwerveModulePosition();
+            m_drainLastAngles[i] = Double.NaN;
+            m_slipKeys[i] = "Mod " + i + " Slip Fraction";
+        }
+
+        // Sample the encoders and gyro faster than the 50 Hz scheduler so odometry integrates in smaller steps
+        m_odometryBuffer = new OdometrySampleBuffer(ODOMETRY_BUFFER_SIZE, moduleCount);
+        m_odometryThread = new Notifier(this::sampleOdometry);
+        m_odometryThread.setName("Odometry");
+        m_odometryThread.startPeriodic(ODOMETRY_PERIOD_SECONDS);
     }
 
     public void drive(Translation2d translation, double rotationSpeed, boolean fieldRelative, boolean isOpenLoop) {
-        SwerveModuleState[] swerveModuleStates = 
-            SwerveConstants.Swerve.swerveKinematics.toSwerveModuleStates(
-                fieldRelative ? ChassisSpeeds.fromFieldRelativeSpeeds(
-                                    translation.getX(),
-                                    translation.getY(),
-                                    rotationSpeed,
-                                    getYaw()
-                                )
-                                : new ChassisSpeeds(
-                                    translation.getX(),
-                                    translation.getY(),
-                                    rotationSpeed)
-                                );
-        SwerveDriveKinematics.desaturateWheelSpeeds(swerveModuleStates, SwerveConstants.Swerve.maxSpeed);
+        ChassisSpeeds speeds = fieldRelative ? ChassisSpeeds.fromFieldRelativeSpeeds(
+                                                   translation.getX(),
+                                                   translation.getY(),
+                                                   rotationSpeed,
+                                                   getYaw()
+                                               )
+                                               : new ChassisSpeeds(
+                                                   translation.getX(),
+                                                   translation.getY(),
+                                                   rotationSpeed);
+        drive(speeds, isOpenLoop);
+    }
+
+    /**
+     * Drives at robot relative chassis speeds. The speeds are first limited by the setpoint
+     * generator so no module accelerates or steers faster than it physically can, then
+     * converted with second order kinematics so the robot can translate and rotate at the
+     * same time without skewing off its path.
+     */
+    public void drive(ChassisSpeeds speeds, boolean isOpenLoop) {
+        double dt = SwerveConstants.Swerve.driveLoopPeriod;
+        double now = Timer.getFPGATimestamp();
+        double elapsed = now - m_lastDriveTime;
+        boolean continuous = elapsed > 0.0 && elapsed < 2.0 * dt && !m_driveSetpointStale;
+        m_driveSetpointStale = false;
+
+        // After a gap in driving, plan from what the modules are actually doing
+        if (!continuous) {
+            m_setpointGenerator.reset(SwerveConstants.Swerve.swerveKinematics.toChassisSpeeds(m_moduleStates));
+        }
+        ChassisSpeeds setpoint = m_setpointGenerator.generate(speeds, dt);
+        ChassisSpeeds discretized = SecondOrderSwerveKinematics.discretize(setpoint, dt);
+
+        // Chassis acceleration from the previous command
+        ChassisSpeeds accelerations = new ChassisSpeeds();
+        if (continuous) {
+            accelerations = new ChassisSpeeds(
+                (discretized.vxMetersPerSecond - m_lastSpeeds.vxMetersPerSecond) / elapsed,
+                (discretized.vyMetersPerSecond - m_lastSpeeds.vyMetersPerSecond) / elapsed,
+                (discretized.omegaRadiansPerSecond - m_lastSpeeds.omegaRadiansPerSecond) / elapsed);
+        }
+        m_lastSpeeds = discretized;
+        m_lastDriveTime = now;
+
+        SwerveConstants.Swerve.secondOrderKinematics.toModuleStates(discretized, accelerations, m_desiredStates, m_steerRates);
 
         for (SwerveModule module : m_swerveModules) {
-            module.setDesiredState(swerveModuleStates[module.m_moduleNumber], isOpenLoop);
+            module.setDesiredState(m_desiredStates[module.m_moduleNumber], isOpenLoop, m_steerRates[module.m_moduleNumber]);
         }
     }
 
@@ -85,63 +268,278 @@ public class Drivetrain extends SubsystemBase {
         }
     }
 
+    /**
+     * Runs on the odometry thread: reads every module once through SwerveSignals, timestamps
+     * the sample and pairs it with the gyro's yaw at that same time rather than its last frame.
+     */
+    private void sampleOdometry() {
+        double now = Timer.getFPGATimestamp();
+        // Read as Falcon counts, then converted in place
+        m_signals.readOdometry(m_sampleDistances, m_sampleAngles);
+        for (int i = 0; i < m_sampleDistances.length; i++) {
+            m_sampleDistances[i] = Conversions.falconToMeters(m_sampleDistances[i], SwerveConstants.Swerve.wheelCircumference, SwerveConstants.Swerve.driveGearRatio);
+            m_sampleAngles[i] = Conversions.falconToDegrees(m_sampleAngles[i], SwerveConstants.Swerve.angleGearRatio);
+        }
+        m_gyro.sample(now);
+        double yawDegrees = m_gyro.getYawAt(now);
+
+        m_odometryBuffer.add(now, yawDegrees, m_sampleDistances, m_sampleAngles);
+    }
+
+    /**
+     * Integrates every sample the odometry thread took since the last loop, oldest first,
+     * at the time each was taken. Slipping modules' distances are replaced first.
+     */
+    private void updateOdometry() {
+        int count = m_odometryBuffer.drain(m_drainTimestamps, m_drainYaws, m_drainDistances, m_drainAngles);
+        for (int i = 0; i < count; i++) {
+            correctSlip(i);
+            for (int module = 0; module < m_drainPositions.length; module++) {
+                m_drainPositions[module].distanceMeters = m_correctedDistances[module];
+                if (m_drainAngles[i][module] != m_drainLastAngles[module]) {
+                    m_drainLastAngles[module] = m_drainAngles[i][module];
+                    m_drainPositions[module].angle = Rotation2d.fromDegrees(m_drainAngles[i][module]);
+                }
+            }
+            Pose2d pose = m_poseEstimator.updateWithTime(m_drainTimestamps[i], Rotation2d.fromDegrees(m_drainYaws[i]), m_drainPositions);
+            m_poseHistory.add(m_drainTimestamps[i], pose);
+        }
+    }
+
+    /**
+     * Reads all 12 swerve devices in one pass; control and telemetry this loop use what was read here.
+     */
+    public void sampleModules() {
+        m_signals.refresh();
+        for (SwerveModule module : m_swerveModules) {
+            module.sample();
+        }
+    }
+
+    private void correctSlip(int sample) {
+        double[] distances = m_drainDistances[sample];
+        if (Double.isNaN(m_lastSampleTime)) {
+            // First sample since a reset, nothing to compare against yet
+            System.arraycopy(distances, 0, m_rawDistances, 0, distances.length);
+            System.arraycopy(distances, 0, m_correctedDistances, 0, distances.length);
+        } else {
+            for (int module = 0; module < distances.length; module++) {
+                m_distanceDeltas[module] = distances[module] - m_rawDistances[module];
+                m_rawDistances[module] = distances[module];
+            }
+            double yawDelta = Math.toRadians(m_drainYaws[sample] - m_lastSampleYaw);
+            m_slipDetector.correct(m_drainTimestamps[sample] - m_lastSampleTime, yawDelta, m_distanceDeltas,
+                m_drainAngles[sample], m_drainTimestamps[sample] < m_collisionUntil);
+            for (int module = 0; module < distances.length; module++) {
+                m_correctedDistances[module] += m_distanceDeltas[module];
+            }
+        }
+        m_lastSampleTime = m_drainTimestamps[sample];
+        m_lastSampleYaw = m_drainYaws[sample];
+    }
+
+    /**
+     * Watches the NavX for acceleration the drivetrain could not have produced itself.
+     */
+    private void detectCollision() {
+        if (m_gyro.isStale()) {
+            return; // the last acceleration would be held, not measured
+        }
+        double accel = Math.hypot(gyro.getWorldLinearAccelX(), gyro.getWorldLinearAccelY()); // in g
+        boolean colliding = accel > COLLISION_ACCEL_G;
+        if (colliding) {
+            m_collisionUntil = Timer.getFPGATimestamp() + COLLISION_HOLD_SECONDS;
+            if (!m_colliding) {
+                m_collisions++;
+            }
+        }
+        m_colliding = colliding;
+    }
+
+    /**
+     * @return True if the robot was hit recently enough that odometry may be off
+     */
+    public boolean isColliding() {
+        return Timer.getFPGATimestamp() < m_collisionUntil;
+    }
+
+    /**
+     * Saves the current CANCoder readings as every module's forward offset and starts using
+     * them. Point every wheel straight forward, bevel gears to the same side, first.
+     */
+    public void calibrateModules() {
+        double[] offsets = new double[m_swerveModules.length];
+        for (SwerveModule module : m_swerveModules) {
+            offsets[module.m_moduleNumber] = module.getCanCoder().getDegrees();
+        }
+        m_calibration.save(offsets);
+        applyCalibration();
+    }
+
+    /**
+     * Re-seeds every module from the cached offsets. Re-seeding moves where each module
+     * thinks forward is, so while enabled it waits until the robot is disabled.
+     */
+    private void applyCalibration() {
+        if (DriverStation.isEnabled()) {
+            m_calibrationPending = true;
+            return;
+        }
+
+        for (SwerveModule module : m_swerveModules) {
+            module.setAngleOffset(Rotation2d.fromDegrees(m_calibration.getAngleOffset(module.m_moduleNumber)));
+            module.resetToAbsolute();
+        }
+        m_calibrationPending = false;
+    }
+
     @Override
     public void periodic() {
-        m_swerveOdometry.update(getYaw(), getModulePositions());
+        sampleModules();
+        detectCollision();
+        updateOdometry();
+
+        if (++m_calibrationCounter >= CALIBRATION_CHECK_LOOPS) {
+            m_calibrationCounter = 0;
+            if (m_calibration.reloadIfChanged()) {
+                m_calibrationPending = true;
+            }
+        }
+        if (m_calibrationPending) {
+            applyCalibration();
+        }
 
         // Add the current robot position to smartdashboard
-        Pose2d robotTranslation = m_swerveOdometry.getPoseMeters();
-        SmartDashboard.putNumber("Robot X (SwerveOdometry)", robotTranslation.getTranslation().getX());
-        SmartDashboard.putNumber("Robot Y (SwerveOdometry)", robotTranslation.getTranslation().getY());
-        SmartDashboard.putNumber("Robot Angle (SwerveOdometry)", robotTranslation.getRotation().getDegrees());
+        Pose2d robotTranslation = getPose();
+        SmartDashboard.putNumber("Robot X (PoseEstimator)", robotTranslation.getTranslation().getX());
+        SmartDashboard.putNumber("Robot Y (PoseEstimator)", robotTranslation.getTranslation().getY());
+        SmartDashboard.putNumber("Robot Angle (PoseEstimator)", robotTranslation.getRotation().getDegrees());
+        SmartDashboard.putNumber("Odometry Samples Dropped", m_odometryBuffer.getOverwritten());
+        SmartDashboard.putNumber("Odometry Skid Samples", m_slipDetector.getSkidSamples());
+        SmartDashboard.putNumber("Collisions", m_collisions);
+        SmartDashboard.putBoolean("Colliding", isColliding());
 
         for (SwerveModule module : m_swerveModules) {
-            SmartDashboard.putNumber("Mod " + module.m_moduleNumber + " Cancoder", module.getCanCoder().getDegrees());
-            SmartDashboard.putNumber("Mod " + module.m_moduleNumber + " Angle", module.getPosition().angle.getDegrees());
-            SmartDashboard.putNumber("Mod " + module.m_moduleNumber + " Meters/Sec", module.getState().speedMetersPerSecond);
+            int i = module.m_moduleNumber;
+            SmartDashboard.putNumber(m_cancoderKeys[i], m_signals.getAbsoluteAngle(i));
+            SmartDashboard.putNumber(m_angleKeys[i], m_modulePositions[i].angle.getDegrees());
+            SmartDashboard.putNumber(m_speedKeys[i], m_moduleStates[i].speedMetersPerSecond);
+            SmartDashboard.putNumber(m_slipKeys[i], m_slipDetector.getSlipFraction(i));
         }
+        m_signals.updateDashboard();
+        m_gyro.updateDashboard();
     }
 
+    /**
+     * Drives each module closed loop to exactly the state it is given, so states that are
+     * not one rigid body motion (an X lock, a single module test) still work. Only each
+     * module's speed is limited, to the top speed and by how fast it may change from the
+     * last command; use drive() to have the whole chassis motion limited instead.
+     */
     public void setModuleStates(SwerveModuleState[] desiredStates) {
         SwerveDriveKinematics.desaturateWheelSpeeds(desiredStates, SwerveConstants.Swerve.maxSpeed);
 
+        double dt = SwerveConstants.Swerve.driveLoopPeriod;
+        double now = Timer.getFPGATimestamp();
+        double elapsed = now - m_lastDriveTime;
+        boolean continuous = elapsed > 0.0 && elapsed < 2.0 * dt;
+        double maxChange = SwerveConstants.Swerve.maxModuleAcceleration * (continuous ? elapsed : dt);
+
         for (SwerveModule module : m_swerveModules) {
-            module.setDesiredState(desiredStates[module.m_moduleNumber], false);
+            int i = module.m_moduleNumber;
+            // Ramp from the last command, or from what the module is doing after a gap
+            double lastSpeed = Math.abs(continuous ? m_desiredStates[i].speedMetersPerSecond : m_moduleStates[i].speedMetersPerSecond);
+            double speed = desiredStates[i].speedMetersPerSecond;
+            double limited = MathUtil.clamp(Math.abs(speed), lastSpeed - maxChange, lastSpeed + maxChange);
+            m_desiredStates[i].speedMetersPerSecond = Math.copySign(limited, speed);
+            m_desiredStates[i].angle = desiredStates[i].angle;
+            module.setDesiredState(m_desiredStates[i], false);
         }
+
+        // The chassis motion no longer matches the setpoint generator's, so the next drive()
+        // plans from the measured module states
+        m_lastDriveTime = now;
+        m_driveSetpointStale = true;
     }
 
+    /**
+     * @return The fused estimate of the robot's field space pose
+     */
     public Pose2d getPose() {
-        return m_swerveOdometry.getPoseMeters();
+        return m_poseEstimator.getEstimatedPosition();
+    }
+
+    /**
+     * Looks up where the robot was at a past time, e.g. when a camera frame was captured.
+     * Only the last 1.5 seconds are kept; older times return the oldest pose.
+     * @param timestampSeconds FPGA time
+     */
+    public Pose2d getPoseAt(double timestampSeconds) {
+        Pose2d pose = m_poseHistory.getPoseAt(timestampSeconds);
+        return pose != null ? pose : getPose();
+    }
+
+    /**
+     * Corrects the pose estimate with a vision measurement. The estimator corrects the pose
+     * it had when the image was captured and carries that correction forward to now.
+     * @param visionPose The robot's field space pose seen by the camera
+     * @param timestampSeconds FPGA time the image was captured
+     * @param stdDevs The measurement's x, y and heading standard deviations
+     */
+    public void addVisionMeasurement(Pose2d visionPose, double timestampSeconds, Matrix<N3, N1> stdDevs) {
+        m_poseEstimator.addVisionMeasurement(visionPose, timestampSeconds, stdDevs);
     }
 
     public void resetOdometry(Pose2d pose) {
-        m_swerveOdometry.resetPosition(getYaw(), getModulePositions(), pose);
+        // Samples from before the reset would be integrated on top of the new pose, including
+        // one the odometry thread is adding right now
+        m_odometryBuffer.clear(Timer.getFPGATimestamp());
+        m_poseHistory.clear();
+        m_lastSampleTime = Double.NaN;
+        sampleModules();
+        m_poseEstimator.resetPosition(getYaw(), getModulePositions(), pose);
     }
 
+    /**
+     * @return Each module's state from the latest sampleModules(). The array and its states
+     * are reused, copy them to keep values across loops.
+     */
     public SwerveModuleState[] getModuleStates() {
-        SwerveModuleState[] states = new SwerveModuleState[m_swerveModules.length];
-        for (SwerveModule module : m_swerveModules) {
-            states[module.m_moduleNumber] = module.getState();
-        }
-
-        return states;
+        return m_moduleStates;
     }
 
+    /**
+     * @return Each module's position from the latest sampleModules(). The array and its
+     * positions are reused, copy them to keep values across loops.
+     */
     public SwerveModulePosition[] getModulePositions() {
-        SwerveModulePosition[] positions = new SwerveModulePosition[m_swerveModules.length];
-        for (SwerveModule module : m_swerveModules) {
-            positions[module.m_moduleNumber] = module.getPosition();
-        }
-
-        return positions;
+        return m_modulePositions;
     }
 
     public void zeroGyro() {
-        gyro.zeroYaw();
+        m_gyro.zeroYaw(Timer.getFPGATimestamp());
     }
 
+    /**
+     * @return The yaw from the NavX's newest frame
+     */
     public Rotation2d getYaw() {
-        return Rotation2d.fromDegrees(gyro.getAngle());
+        return m_gyro.getYaw();
+    }
+
+    /**
+     * Looks up the gyro's yaw at a recent time, e.g. when a camera frame was captured.
+     * @param timestampSeconds FPGA time
+     */
+    public Rotation2d getYawAt(double timestampSeconds) {
+        return Rotation2d.fromDegrees(m_gyro.getYawAt(timestampSeconds));
+    }
+
+    /**
+     * @return True if the NavX is disconnected or has stopped updating
+     */
+    public boolean isGyroStale() {
+        return m_gyro.isStale();
     }
 
     public void resetModulesToAbsolute() {
@@ -154,7 +552,17 @@ public class Drivetrain extends SubsystemBase {
         resetOdometry(new Pose2d(startingPose.getX(), startingPose.getY(), new Rotation2d(startingPose.getHeadingRadians())));
     }
 
+    /**
+     * Stops every module right away, without ramping down through the setpoint generator.
+     */
     public void stop() {
-        drive(new Translation2d(0, 0), 0, true, false);
+        for (SwerveModule module : m_swerveModules) {
+            module.stop();
+        }
+        m_setpointGenerator.reset(new ChassisSpeeds());
+        m_lastSpeeds = new ChassisSpeeds();
+        for (SwerveModuleState state : m_desiredStates) {
+            state.speedMetersPerSecond = 0.0;
+        }
     }
 }
@@ -1,50 +1,214 @@
 package frc.robot.subsystems;
 
-import edu.wpi.first.math.estimator.SwerveDrivePoseEstimator;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import edu.wpi.first.math.Matrix;
 import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Transform2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.math.numbers.N1;
+import edu.wpi.first.math.numbers.N3;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import frc.lib.util.SpscRingBuffer;
+import frc.lib.util.SwerveConstants.AutoConstants;
 import frc.robot.LimelightHelpers;
+import frc.robot.LimelightHelpers.LimelightTarget_Fiducial;
+import frc.robot.LimelightHelpers.Results;
+import frc.robot.classes.FieldLayout;
+import frc.robot.classes.LimelightCamera;
+import frc.robot.classes.LimelightFrame;
+import frc.robot.classes.LimelightIngest;
+import frc.robot.classes.TagTracker;
+import frc.robot.classes.TagTracker.TrackedTag;
+import frc.robot.classes.VisionMeasurement;
+import frc.robot.classes.VisionMeasurementScorer;
+import frc.robot.classes.VisionObservation;
+import frc.robot.classes.VisionSnapshot;
 
+/**
+ * Runs every Limelight on the robot. A dedicated vision thread reads all cameras,
+ * parses and scores their frames and merges the pose observations into one time
+ * ordered stream; the control loop only drains finished measurements into the pose
+ * estimator and reads the latest targeting snapshot, so slow frames never hold up
+ * the scheduler. The first camera is also used for target alignment (tx/ty).
+ */
 public class LimelightInterface extends SubsystemBase {
     private static final String LIMELIGHT_NAME = "limelight";
     private static final double TARGET_HEIGHT = 0.0d; // average height of april tags (they are on varying heights)
     private static final double LIMELIGHT_HEIGHT = 0.0d; // height of limelight mounted on robot
     private static final double LIMELIGHT_INITIAL_ANGLE = 0.0d; // in degrees the angle of the limelight mounted on robot
     private static final double VISION_ANGLE_TOLERANCE = 3.0d; // max deviation in actual angle measure
+    private static final double ALIGNED_CONFIDENCE = 0.7d; // tracker confidence needed to count as aligned
+    private static final double VISION_PERIOD_SECONDS = 0.01d; // vision thread cadence
+    private static final int DASHBOARD_DIVIDER = 10; // vision thread loops per dashboard update
+    private static final int MEASUREMENT_QUEUE_SIZE = 64;
 
+    /* Owned by the vision thread */
     private double tv; // target in sight
     private double tx; // horizontal offset from crosshair to target
     private double ty; // vertical offset from crosshair to target
-
     private double distanceToGoal; // in inches
-    private int targetCount; // ensure target being identified correctly x amount of times before complete
-    private SwerveDrivePoseEstimator estimator;
+    private long lastFrameTimestamp; // local time of the newest frame processed, in microseconds
+    private int dashboardCounter;
+    private long droppedMeasurements;
+    private final ArrayList<LimelightFrame> frames = new ArrayList<>(LimelightIngest.QUEUE_DEPTH);
+    private final ArrayList<VisionObservation> observations;
+    private final VisionMeasurementScorer scorer = new VisionMeasurementScorer();
+    private final TagTracker tracker = new TagTracker();
+
+    /* Handoff between the vision thread and the control loop */
+    private final SpscRingBuffer<VisionMeasurement> measurementQueue = new SpscRingBuffer<>(MEASUREMENT_QUEUE_SIZE);
+    private final AtomicReference<VisionSnapshot> latestSnapshot = new AtomicReference<>(VisionSnapshot.EMPTY);
+
+    /* Owned by the control loop */
+    private VisionSnapshot snapshot = VisionSnapshot.EMPTY;
+    private final ArrayList<VisionMeasurement> measurements = new ArrayList<>(MEASUREMENT_QUEUE_SIZE);
+    private final List<VisionMeasurement> measurementsView = Collections.unmodifiableList(measurements);
+    private final Drivetrain drivetrain;
+
+    private final LimelightCamera[] cameras;
+    private final LimelightCamera primaryCamera;
+    private final FieldLayout fieldLayout = FieldLayout.getInstance();
+    private final Notifier visionThread;
+
+    public LimelightInterface(Drivetrain drivetrain) {
+        this(drivetrain, new LimelightCamera(LIMELIGHT_NAME));
+    }
+
+    /**
+     * @param drivetrain The drivetrain whose pose estimate the camera observations correct
+     * @param cameras Every camera on the robot, the first one is used for alignment
+     */
+    public LimelightInterface(Drivetrain drivetrain, LimelightCamera... cameras) {
+        if (cameras.length == 0) {
+            throw new IllegalArgumentException("LimelightInterface needs at least one camera");
+        }
 
-    public LimelightInterface(SwerveDrivePoseEstimator estimator) {
-        this.estimator = estimator;
+        this.drivetrain = drivetrain;
+        this.cameras = cameras;
+        this.primaryCamera = cameras[0];
+        this.observations = new ArrayList<>(cameras.length * LimelightIngest.QUEUE_DEPTH);
 
         tv = 0.0d;
         tx = 0.0d;
         ty = 0.0d;
         distanceToGoal = 0.0d;
-        targetCount = 0;
+
+        visionThread = new Notifier(this::visionPeriodic);
+        visionThread.setName("Vision");
+        visionThread.startPeriodic(VISION_PERIOD_SECONDS);
     }
 
     @Override
     public void periodic() {
-        tv = NetworkTableInstance.getDefault().getTable(LIMELIGHT_NAME).getEntry("tv").getDouble(0);
-        tx = NetworkTableInstance.getDefault().getTable(LIMELIGHT_NAME).getEntry("tx").getDouble(0);
-        ty = NetworkTableInstance.getDefault().getTable(LIMELIGHT_NAME).getEntry("ty").getDouble(0);
+        snapshot = latestSnapshot.get();
+
+        measurements.clear();
+        VisionMeasurement measurement = measurementQueue.poll();
+        while (measurement != null) {
+            measurements.add(measurement);
+            measurement = measurementQueue.poll();
+        }
+
+        applyVisionMeasurements();
+    }
+
+    /**
+     * Runs on the vision thread: ingests, parses and scores every camera's new frames
+     * and publishes the results for the control loop.
+     */
+    private void visionPeriodic() {
+        long now = RobotController.getFPGATime();
+        observations.clear();
+
+        // Each frame is handed out once, so loops without a new frame do nothing
+        boolean primaryUpdated = false;
+        for (int i = 0; i < cameras.length; i++) {
+            LimelightCamera camera = cameras[i];
+            frames.clear();
+            camera.poll(frames, now);
+
+            for (LimelightFrame frame : frames) {
+                if (camera == primaryCamera) {
+                    processFrame(camera, frame);
+                    primaryUpdated = true;
+                }
+
+                VisionObservation observation = camera.toObservation(i, frame, now);
+                if (observation != null) {
+                    observations.add(observation);
+                }
+            }
+        }
+
+        // Cameras run independently, so merge their frames back into capture order
+        observations.sort(VisionObservation.BY_TIMESTAMP);
+
+        for (VisionObservation observation : observations) {
+            // Compare against where the robot was when the image was captured, not where it is now
+            Pose2d referencePose = drivetrain.getPoseAt(observation.timestampSeconds);
+            Matrix<N3, N1> stdDevs = scorer.score(observation, referencePose);
+            if (stdDevs != null && !measurementQueue.offer(new VisionMeasurement(observation, stdDevs))) {
+                droppedMeasurements++;
+            }
+        }
+
+        if (primaryUpdated) {
+            TrackedTag trackedTag = tracker.getTag(tracker.getBestTag(now));
+            latestSnapshot.set(new VisionSnapshot(tv > 0, tx, ty, distanceToGoal, trackedTag, lastFrameTimestamp));
+        }
+
+        if (++dashboardCounter >= DASHBOARD_DIVIDER) {
+            dashboardCounter = 0;
+            for (LimelightCamera camera : cameras) {
+                camera.updateDashboard();
+            }
+            SmartDashboard.putNumber("Vision/Accepted", scorer.getAccepted());
+            SmartDashboard.putNumber("Vision/Rejected", scorer.getRejected());
+            SmartDashboard.putNumber("Vision/Dropped", droppedMeasurements);
+        }
+    }
+
+    /**
+     * Feeds the measurements the vision thread finished since the last loop to the pose
+     * estimator at the time each image was captured, so the estimator corrects the pose
+     * the robot had then and replays odometry forward instead of treating old frames as
+     * current. Each one was already weighted (or rejected) by the scorer.
+     */
+    private void applyVisionMeasurements() {
+        // Measurements from different vision loops can overlap in capture time
+        measurements.sort(VisionMeasurement.BY_TIMESTAMP);
+        for (VisionMeasurement measurement : measurements) {
+            VisionObservation observation = measurement.observation;
+            drivetrain.addVisionMeasurement(observation.pose, observation.timestampSeconds, measurement.stdDevs);
+        }
+    }
+
+    private void processFrame(LimelightCamera camera, LimelightFrame frame) {
+        tv = frame.hasTarget ? 1.0d : 0.0d;
+        tx = frame.tx;
+        ty = frame.ty;
+        lastFrameTimestamp = frame.timestampMicros;
 
         calcDist();
 
-        if (Math.abs(tx) <= VISION_ANGLE_TOLERANCE) {
-            targetCount++;
-        } else {
-            targetCount = 0;
+        // Track every tag in view; without the json dump only the primary tag is known
+        Results results = camera.getResults(frame);
+        if (results.fiducialCount > 0) {
+            for (int i = 0; i < results.fiducialCount; i++) {
+                LimelightTarget_Fiducial target = results.targets_Fiducials[i];
+                tracker.update((int) target.fiducialID, target.tx, target.ty,
+                    target.getTargetX_RobotSpace(), target.getTargetY_RobotSpace(), frame.timestampMicros);
+            }
+        } else if (frame.hasTarget) {
+            tracker.update(frame.tid, frame.tx, frame.ty, Double.NaN, Double.NaN, frame.timestampMicros);
         }
     }
 
@@ -53,35 +217,111 @@ public class LimelightInterface extends SubsystemBase {
     }
 
     public double getDistance() {
-        return distanceToGoal;
+        return snapshot.distanceToGoal;
     }
 
     public boolean tooClose() {
-        return distanceToGoal <= 0.0;
+        return snapshot.distanceToGoal <= 0.0;
     }
 
     public boolean tooFar() {
-        return distanceToGoal >= 1.0;
+        return snapshot.distanceToGoal >= 1.0;
+    }
+
+    /**
+     * @return Local (FPGA) time of the newest processed frame, in microseconds
+     */
+    public long getLastFrameTimestamp() {
+        return snapshot.frameTimestampMicros;
+    }
+
+    /**
+     * @return The vision measurements applied this loop across all cameras, oldest first.
+     * Only valid until the next periodic call.
+     */
+    public List<VisionMeasurement> getMeasurements() {
+        return measurementsView;
+    }
+
+    public LimelightCamera[] getCameras() {
+        return cameras;
     }
 
     public double getId() {
-        return LimelightHelpers.getFiducialID(LIMELIGHT_NAME);
+        return LimelightHelpers.getFiducialID(primaryCamera.name);
     }
 
+    /**
+     * @return True if a tag is in view, or was seen recently enough to be predicted
+     */
     public boolean hasTarget() {
-        return tv > 0;
+        TrackedTag tag = snapshot.trackedTag;
+        return snapshot.hasTarget || (tag != null && tag.isFresh(RobotController.getFPGATime()));
     }
 
+    /**
+     * Uses the tracked tag rather than the raw frame, so a tag that drops out for a few
+     * frames stays aligned instead of restarting the count. Confidence is judged as of the
+     * tag's last sighting, since it decays between every pair of frames; isFresh() is what
+     * bounds how long a gap can be.
+     */
     public boolean isAligned() {
-        return hasTarget() && Math.abs(tx) <= VISION_ANGLE_TOLERANCE && targetCount >= 7;
+        TrackedTag tag = snapshot.trackedTag;
+        if (tag == null) {
+            return false;
+        }
+
+        long now = RobotController.getFPGATime();
+        return tag.isFresh(now)
+            && Math.abs(tag.predictTx(now)) <= VISION_ANGLE_TOLERANCE
+            && tag.confidence >= ALIGNED_CONFIDENCE;
     }
 
+    /**
+     * @return The most confident tracked tag as of the last vision frame, null if none
+     */
+    public TrackedTag getTrackedTag() {
+        return snapshot.trackedTag;
+    }
+
+    /**
+     * @return The surveyed field space pose of the tracked tag, null if no tag is tracked
+     * or it is not in the field layout
+     */
     public Pose2d getTargetPose() {
-        Pose2d robotPose = estimator.getEstimatedPosition(); // field space
-        Pose2d targetPose = LimelightHelpers.getTargetPose3d_RobotSpace(LIMELIGHT_NAME).toPose2d(); // robot space
+        TrackedTag tag = snapshot.trackedTag;
+        return tag != null ? getTargetPose(tag.id) : null;
+    }
+
+    /**
+     * @return Where the robot should be to score on the tracked tag, see getScoringPose(int)
+     */
+    public Pose2d getScoringPose() {
+        TrackedTag tag = snapshot.trackedTag;
+        return tag != null ? getScoringPose(tag.id) : null;
+    }
+
+    /**
+     * @param id The tag's fiducial ID
+     * @return The field space pose that puts the robot's center the standoff distance in
+     * front of the tag, facing it, or null if the tag is not in the field layout
+     */
+    public Pose2d getScoringPose(int id) {
+        Pose2d targetPose = getTargetPose(id);
+        if (targetPose == null) {
+            return null;
+        }
+        return targetPose.transformBy(new Transform2d(
+            new Translation2d(AutoConstants.kAlignStandoffMeters, 0.0), Rotation2d.fromDegrees(180.0)));
+    }
 
-        Translation2d targetTranslation = targetPose.getTranslation();
-        Transform2d targetTransform = new Transform2d(targetTranslation, targetPose.getRotation());
-        return robotPose.plus(targetTransform); // field space
+    /**
+     * Gets a tag's surveyed field space pose. Tags that are not in the field layout have
+     * no pose to drive to, the camera's view of some tag is no substitute.
+     * @param id The tag's fiducial ID
+     * @return The tag's pose, or null if it is not in the field layout
+     */
+    public Pose2d getTargetPose(int id) {
+        return fieldLayout.getTagPose(id);
     }
 }
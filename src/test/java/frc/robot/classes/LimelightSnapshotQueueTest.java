@@ -0,0 +1,151 @@
+package frc.robot.classes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs the snapshot queue against a local HTTP server standing in for a Limelight.
+ */
+public class LimelightSnapshotQueueTest {
+    private static final long WAIT_SECONDS = 5;
+    /** Longer than any test waits, so a request the server holds never times out */
+    private static final int LONG_READ_TIMEOUT_MS = 10000;
+
+    private HttpServer m_server;
+    private LimelightSnapshotQueue m_queue;
+
+    private volatile int m_responseCode = 200;
+    private volatile CountDownLatch m_release = new CountDownLatch(0);
+    private final CountDownLatch m_firstRequest = new CountDownLatch(1);
+    private final AtomicInteger m_requests = new AtomicInteger();
+    private final AtomicReference<String> m_path = new AtomicReference<>();
+    private final AtomicReference<String> m_snapshotName = new AtomicReference<>();
+
+    @BeforeEach
+    public void startServer() throws IOException {
+        m_server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        m_server.createContext("/", this::handle);
+        m_server.start();
+    }
+
+    @AfterEach
+    public void stopServer() {
+        m_release.countDown();
+        if (m_queue != null) {
+            m_queue.close();
+        }
+        m_server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        m_requests.incrementAndGet();
+        m_path.set(exchange.getRequestURI().getPath());
+        m_snapshotName.set(exchange.getRequestHeaders().getFirst("snapname"));
+        m_firstRequest.countDown();
+        try {
+            m_release.await(WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        exchange.sendResponseHeaders(m_responseCode, -1);
+        exchange.close();
+    }
+
+    private LimelightSnapshotQueue createQueue(int readTimeoutMs, int maxPending) {
+        String urlFormat = "http://127.0.0.1:" + m_server.getAddress().getPort() + "/%s/";
+        m_queue = new LimelightSnapshotQueue(urlFormat, 500, readTimeoutMs, maxPending, 60000);
+        return m_queue;
+    }
+
+    private static boolean await(CompletableFuture<Boolean> future) throws Exception {
+        return future.get(WAIT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void sendsSnapshotToCamera() throws Exception {
+        LimelightSnapshotQueue queue = createQueue(1000, 4);
+
+        assertTrue(await(queue.takeSnapshot("limelight-front", "scored")));
+        assertEquals("/limelight-front/capturesnapshot", m_path.get());
+        assertEquals("scored", m_snapshotName.get());
+        assertEquals(1, queue.getSucceeded());
+        assertEquals(0, queue.getFailed());
+    }
+
+    @Test
+    public void badResponseFails() throws Exception {
+        m_responseCode = 500;
+        LimelightSnapshotQueue queue = createQueue(1000, 4);
+
+        assertFalse(await(queue.takeSnapshot("limelight", "")));
+        assertEquals(0, queue.getSucceeded());
+        assertEquals(1, queue.getFailed());
+    }
+
+    @Test
+    public void timedOutCameraIsSkippedDuringCooldown() throws Exception {
+        m_release = new CountDownLatch(1);
+        LimelightSnapshotQueue queue = createQueue(100, 4);
+
+        assertFalse(await(queue.takeSnapshot("limelight", "first")));
+        assertEquals(1, queue.getFailed());
+
+        // The camera is cooling down, so this never reaches the server
+        assertFalse(await(queue.takeSnapshot("limelight", "second")));
+        assertEquals(1, queue.getDropped());
+        assertEquals(1, m_requests.get());
+    }
+
+    @Test
+    public void fullQueueDropsAndDuplicatesCoalesce() throws Exception {
+        m_release = new CountDownLatch(1);
+        LimelightSnapshotQueue queue = createQueue(LONG_READ_TIMEOUT_MS, 1);
+
+        CompletableFuture<Boolean> sending = queue.takeSnapshot("limelight", "a");
+        assertTrue(m_firstRequest.await(WAIT_SECONDS, TimeUnit.SECONDS));
+
+        CompletableFuture<Boolean> waiting = queue.takeSnapshot("limelight", "b");
+        assertSame(waiting, queue.takeSnapshot("limelight", "b"));
+        assertEquals(1, queue.getCoalesced());
+
+        CompletableFuture<Boolean> dropped = queue.takeSnapshot("limelight", "c");
+        assertTrue(dropped.isDone());
+        assertFalse(await(dropped));
+        assertEquals(1, queue.getDropped());
+
+        m_release.countDown();
+        assertTrue(await(sending));
+        assertTrue(await(waiting));
+        assertEquals(2, queue.getSucceeded());
+    }
+
+    @Test
+    public void closeCompletesWaitingRequests() throws Exception {
+        m_release = new CountDownLatch(1);
+        LimelightSnapshotQueue queue = createQueue(LONG_READ_TIMEOUT_MS, 4);
+
+        queue.takeSnapshot("limelight", "a");
+        assertTrue(m_firstRequest.await(WAIT_SECONDS, TimeUnit.SECONDS));
+        CompletableFuture<Boolean> waiting = queue.takeSnapshot("limelight", "b");
+
+        queue.close();
+        assertFalse(await(waiting));
+    }
+}